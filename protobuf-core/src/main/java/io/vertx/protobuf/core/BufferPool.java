@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+/**
+ * A pool of byte arrays messages are encoded to, see
+ * {@link ProtobufWriter#encode(java.util.function.Consumer, BufferPool, java.util.function.ObjIntConsumer)}.
+ *
+ * <p>Implementations decide the scope of the pool, e.g. a pool per thread or per Vert.x context.</p>
+ */
+public interface BufferPool {
+
+  /**
+   * A pool that allocates a new array each time.
+   */
+  BufferPool UNPOOLED = new BufferPool() {
+    @Override
+    public byte[] acquire(int capacity) {
+      return new byte[capacity];
+    }
+    @Override
+    public void release(byte[] buffer) {
+    }
+  };
+
+  /**
+   * Create a pool retaining one array per thread, arrays larger than {@code maxRetainedCapacity} are not retained.
+   */
+  static BufferPool threadLocal(int maxRetainedCapacity) {
+    return new ThreadLocalBufferPool(maxRetainedCapacity);
+  }
+
+  /**
+   * @return an array of at least {@code capacity} bytes, its content is undefined
+   */
+  byte[] acquire(int capacity);
+
+  /**
+   * Give back an array obtained from {@link #acquire(int)}, it must not be used afterwards.
+   */
+  void release(byte[] buffer);
+
+}
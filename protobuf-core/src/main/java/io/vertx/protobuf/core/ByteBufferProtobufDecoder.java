@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A decoder reading from a {@link ByteBuffer}, heap or direct, without copying the buffer content first.
+ *
+ * <p>The decoder reads the bytes between the buffer position and limit using absolute operations, the buffer
+ * position and limit are not modified. Indices returned by {@link #index()} and accepted by {@link #index(int)}
+ * and {@link #len(int)} are absolute buffer indices.</p>
+ */
+public class ByteBufferProtobufDecoder implements ProtobufDecoder {
+
+  private final ByteBuffer buffer;
+  private final byte[] array;
+  private final int arrayOffset;
+  private int idx;
+  private int len;
+  private int fieldNumber;
+  private int wireType;
+  private int intValue;
+  private long longValue;
+
+  public ByteBufferProtobufDecoder(ByteBuffer buffer) {
+    // Private view so we can use little endian absolute reads and relative bulk reads
+    this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.hasArray()) {
+      this.array = buffer.array();
+      this.arrayOffset = buffer.arrayOffset();
+    } else {
+      this.array = null;
+      this.arrayOffset = 0;
+    }
+    this.idx = buffer.position();
+    this.len = buffer.limit();
+  }
+
+  /**
+   * @return a view of the decoded buffer, indices of this decoder are absolute indices of this buffer
+   */
+  public ByteBuffer buffer() {
+    return buffer.duplicate();
+  }
+
+  public int len() {
+    return len;
+  }
+
+  public ByteBufferProtobufDecoder len(int len) {
+    this.len = len;
+    return this;
+  }
+
+  public ByteBufferProtobufDecoder index(int index) {
+    idx = index;
+    return this;
+  }
+
+  public int index() {
+    return idx;
+  }
+
+  public void skip(int n) {
+    idx += n;
+  }
+
+  public String readString(int lengthInBytes) {
+    if (lengthInBytes < 0 || lengthInBytes > len - idx) {
+      throw new DecodeException();
+    }
+    String str;
+    if (array != null) {
+      str = Utf8.decode(array, arrayOffset + idx, lengthInBytes);
+    } else {
+      str = Utf8.decode(copy(lengthInBytes), 0, lengthInBytes);
+    }
+    idx += lengthInBytes;
+    return str;
+  }
+
+  /**
+   * Read a string as a view over the backing array of a heap buffer, the bytes of a direct buffer are copied.
+   */
+  @Override
+  public Utf8String readUtf8String(int lengthInBytes) {
+    if (lengthInBytes < 0 || lengthInBytes > len - idx) {
+      throw new DecodeException();
+    }
+    Utf8String str;
+    if (array != null) {
+      str = Utf8String.wrap(array, arrayOffset + idx, lengthInBytes);
+    } else {
+      str = Utf8String.wrap(copy(lengthInBytes));
+    }
+    idx += lengthInBytes;
+    return str;
+  }
+
+  public byte[] readBytes(int lengthInBytes) {
+    if (lengthInBytes < 0 || lengthInBytes > len - idx) {
+      throw new DecodeException();
+    }
+    byte[] bytes;
+    if (array != null) {
+      bytes = new byte[lengthInBytes];
+      System.arraycopy(array, arrayOffset + idx, bytes, 0, lengthInBytes);
+    } else {
+      bytes = copy(lengthInBytes);
+    }
+    idx += lengthInBytes;
+    return bytes;
+  }
+
+  private byte[] copy(int lengthInBytes) {
+    byte[] bytes = new byte[lengthInBytes];
+    buffer.position(idx);
+    buffer.get(bytes, 0, lengthInBytes);
+    return bytes;
+  }
+
+  public boolean readTag() {
+    int c = idx;
+    int e = decodeVarInt32();
+    if (idx > c) {
+      fieldNumber = e >> 3;
+      wireType = e & 0b0111;
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  public int fieldNumber() {
+    return fieldNumber;
+  }
+
+  public int wireType() {
+    return wireType;
+  }
+
+  public int intValue() {
+    return intValue;
+  }
+
+  public long longValue() {
+    return longValue;
+  }
+
+  public boolean readVarInt32() {
+    int c = idx;
+    intValue = decodeVarInt32();
+    return idx > c;
+  }
+
+  public boolean readVarInt64() {
+    int c = idx;
+    longValue = decodeVarInt64();
+    return idx > c;
+  }
+
+  public boolean readI32() {
+    intValue = buffer.getInt(idx);
+    idx += 4;
+    return true;
+  }
+
+  public boolean readI64() {
+    longValue = buffer.getLong(idx);
+    idx += 8;
+    return true;
+  }
+
+  public boolean isReadable() {
+    return idx < len;
+  }
+
+  public ByteBufferProtobufDecoder slice(int index, int length) {
+    return new ByteBufferProtobufDecoder(buffer).index(index).len(index + length);
+  }
+
+  public int decodeVarInt32() {
+    return (int) decodeRawVarInt();
+  }
+
+  public long decodeVarInt64() {
+    return decodeRawVarInt();
+  }
+
+  public int decodeI32() {
+    int i = idx;
+    if (len - i < 4) {
+      throw new DecodeException();
+    }
+    idx = i + 4;
+    return buffer.getInt(i);
+  }
+
+  public long decodeI64() {
+    int i = idx;
+    if (len - i < 8) {
+      throw new DecodeException();
+    }
+    idx = i + 8;
+    return buffer.getLong(i);
+  }
+
+  private long decodeRawVarInt() {
+    int i = idx;
+    long val = 0;
+    int shift = 0;
+    while (i < len) {
+      byte b = buffer.get(i++);
+      if (shift < 64) {
+        val |= (long)(b & 0x7F) << shift;
+      }
+      if ((b & 0x80) == 0) {
+        idx = i;
+        return val;
+      }
+      shift += 7;
+    }
+    throw new DecodeException();
+  }
+}
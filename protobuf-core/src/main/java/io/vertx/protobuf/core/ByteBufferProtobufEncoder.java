@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An encoder writing to a {@link ByteBuffer}, heap or direct, starting at the buffer position.
+ *
+ * <p>The encoder writes to a private view of the buffer, the buffer position is not modified.</p>
+ */
+public class ByteBufferProtobufEncoder implements ProtobufEncoder {
+
+  private final ByteBuffer buffer;
+  private final int start;
+
+  public ByteBufferProtobufEncoder(ByteBuffer buffer) {
+    this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    this.start = buffer.position();
+  }
+
+  /**
+   * @return a copy of the bytes written by this encoder
+   */
+  public byte[] buffer() {
+    byte[] bytes = new byte[index()];
+    buffer.duplicate().position(start).get(bytes);
+    return bytes;
+  }
+
+  /**
+   * @return the number of bytes written by this encoder
+   */
+  public int index() {
+    return buffer.position() - start;
+  }
+
+  public void writeTag(int fieldNumber, int wireType) {
+    writeVarInt32((fieldNumber << 3) | (wireType & 0x07));
+  }
+
+  public void writeVarInt32(int v) {
+    while (true) {
+      if ((v & ~0x7F) == 0) {
+        buffer.put((byte) v);
+        return;
+      } else {
+        buffer.put((byte) ((v & 0x7F) | 0x80));
+        v >>>= 7;
+      }
+    }
+  }
+
+  public void writeVarInt64(long v) {
+    while (true) {
+      if ((v & ~0x7FL) == 0) {
+        buffer.put((byte) v);
+        return;
+      } else {
+        buffer.put((byte) ((v & 0x7F) | 0x80));
+        v >>>= 7;
+      }
+    }
+  }
+
+  public void writeInt(int d) {
+    buffer.putInt(d);
+  }
+
+  public void writeLong(long d) {
+    buffer.putLong(d);
+  }
+
+  public void writeString(String s) {
+    buffer.put(s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public void writeBinary(byte[] bytes) {
+    buffer.put(bytes);
+  }
+
+  @Override
+  public void writeUtf8String(Utf8String s) {
+    buffer.put(s.array(), s.offset(), s.length());
+  }
+
+  @Override
+  public void writeRaw(ProtobufDecoder decoder, int offset, int length) {
+    if (decoder instanceof DefaultProtobufDecoder) {
+      buffer.put(((DefaultProtobufDecoder) decoder).buffer(), offset, length);
+    } else {
+      ProtobufEncoder.super.writeRaw(decoder, offset, length);
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An encoder writing to a fixed size chunk, the chunk is handed to a sink each time it is full.
+ *
+ * <p>The sink is called with the chunk and the number of bytes it holds, the chunk is reused once the sink returns,
+ * a sink retaining the bytes must copy them. Memory used by the encoder is bounded by the chunk size whatever the
+ * size of the encoded message.</p>
+ */
+final class ChunkedProtobufEncoder implements ProtobufEncoder {
+
+  /**
+   * The smallest chunk size, a chunk holds at least a varint or a fixed size value.
+   */
+  static final int MIN_CHUNK_SIZE = 16;
+
+  private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private final byte[] chunk;
+  private final ObjIntConsumer<byte[]> sink;
+  private int index;
+  private long flushed;
+
+  ChunkedProtobufEncoder(int chunkSize, ObjIntConsumer<byte[]> sink) {
+    if (chunkSize < MIN_CHUNK_SIZE) {
+      throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+    }
+    this.chunk = new byte[chunkSize];
+    this.sink = sink;
+  }
+
+  /**
+   * Hand the pending bytes to the sink, a message must be flushed once encoded.
+   */
+  void flush() {
+    if (index > 0) {
+      int n = index;
+      index = 0;
+      flushed += n;
+      sink.accept(chunk, n);
+    }
+  }
+
+  /**
+   * Chunks are handed to the sink, the encoded bytes are not retained.
+   *
+   * @throws UnsupportedOperationException always
+   */
+  public byte[] buffer() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * @return the number of bytes written by this encoder, flushed or not
+   */
+  public int index() {
+    return (int) (flushed + index);
+  }
+
+  private void ensure(int n) {
+    if (chunk.length - index < n) {
+      flush();
+    }
+  }
+
+  public void writeTag(int fieldNumber, int wireType) {
+    writeVarInt32((fieldNumber << 3) | (wireType & 0x07));
+  }
+
+  public void writeVarInt32(int v) {
+    ensure(5);
+    byte[] b = chunk;
+    int i = index;
+    while ((v & ~0x7F) != 0) {
+      b[i++] = (byte) ((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    b[i++] = (byte) v;
+    index = i;
+  }
+
+  public void writeVarInt64(long v) {
+    ensure(10);
+    index = DefaultProtobufEncoder.encodeVarInt64(chunk, index, v);
+  }
+
+  public void writeInt(int d) {
+    ensure(4);
+    INT_LE.set(chunk, index, d);
+    index += 4;
+  }
+
+  public void writeLong(long d) {
+    ensure(8);
+    LONG_LE.set(chunk, index, d);
+    index += 8;
+  }
+
+  public void writeString(String s) {
+    writeBinary(s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public void writeBinary(byte[] bytes) {
+    write(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public void writeUtf8String(Utf8String s) {
+    write(s.array(), s.offset(), s.length());
+  }
+
+  @Override
+  public void writeRaw(ProtobufDecoder decoder, int offset, int length) {
+    if (decoder instanceof DefaultProtobufDecoder) {
+      write(((DefaultProtobufDecoder) decoder).buffer(), offset, length);
+    } else {
+      ProtobufEncoder.super.writeRaw(decoder, offset, length);
+    }
+  }
+
+  /**
+   * Copy bytes to the chunk, a value larger than the chunk spans several chunks.
+   */
+  private void write(byte[] bytes, int offset, int length) {
+    while (length > 0) {
+      if (index == chunk.length) {
+        flush();
+      }
+      int n = Math.min(length, chunk.length - index);
+      System.arraycopy(bytes, offset, chunk, index, n);
+      index += n;
+      offset += n;
+      length -= n;
+    }
+  }
+}
@@ -16,11 +16,16 @@
  */
 package io.vertx.protobuf.core;
 
-import java.nio.charset.StandardCharsets;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 
 public class DefaultProtobufDecoder implements ProtobufDecoder {
 
-  private final byte[] buffer;
+  private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private byte[] buffer;
   private int idx;
   private int len;
   private int fieldNumber;
@@ -34,6 +39,36 @@ public class DefaultProtobufDecoder implements ProtobufDecoder {
     this.len = buffer.length;
   }
 
+  /**
+   * Create a decoder of the {@code length} bytes of {@code buffer} starting at {@code offset}.
+   */
+  public DefaultProtobufDecoder(byte[] buffer, int offset, int length) {
+    reset(buffer, offset, length);
+  }
+
+  /**
+   * Reset this decoder to decode the {@code length} bytes of {@code buffer} starting at {@code offset}, so a
+   * decoder can be reused instead of being allocated for each message.
+   *
+   * @return this decoder
+   */
+  public DefaultProtobufDecoder reset(byte[] buffer, int offset, int length) {
+    if (offset < 0 || length < 0 || length > buffer.length - offset) {
+      throw new IndexOutOfBoundsException();
+    }
+    this.buffer = buffer;
+    this.idx = offset;
+    this.len = offset + length;
+    return this;
+  }
+
+  /**
+   * @return the decoded array, indices of this decoder are indices of this array
+   */
+  public byte[] buffer() {
+    return buffer;
+  }
+
   public int len() {
     return len;
   }
@@ -57,12 +92,31 @@ public class DefaultProtobufDecoder implements ProtobufDecoder {
   }
 
   public String readString(int lengthInBytes) {
-    String str = new String(buffer, idx, lengthInBytes, StandardCharsets.UTF_8);
+    if (lengthInBytes < 0 || lengthInBytes > len - idx) {
+      throw new DecodeException();
+    }
+    String str = Utf8.decode(buffer, idx, lengthInBytes);
+    idx += lengthInBytes;
+    return str;
+  }
+
+  /**
+   * Read a string as a view over the decoded array.
+   */
+  @Override
+  public Utf8String readUtf8String(int lengthInBytes) {
+    if (lengthInBytes < 0 || lengthInBytes > len - idx) {
+      throw new DecodeException();
+    }
+    Utf8String str = Utf8String.wrap(buffer, idx, lengthInBytes);
     idx += lengthInBytes;
     return str;
   }
 
   public byte[] readBytes(int lengthInBytes) {
+    if (lengthInBytes < 0 || lengthInBytes > len - idx) {
+      throw new DecodeException();
+    }
     byte[] str = new byte[lengthInBytes];
     System.arraycopy(buffer, idx, str, 0, lengthInBytes);
     idx += lengthInBytes;
@@ -111,13 +165,14 @@ public class DefaultProtobufDecoder implements ProtobufDecoder {
   }
 
   public boolean readI32() {
-    intValue = ((int)buffer[idx++] & 0xFF) + (((int)buffer[idx++] & 0xFF) << 8) + (((int)buffer[idx++] & 0xFF) << 16) + (((int)buffer[idx++] & 0xFF) << 24);
+    intValue = (int) INT_LE.get(buffer, idx);
+    idx += 4;
     return true;
   }
 
   public boolean readI64() {
-    longValue = ((long)buffer[idx++] & 0xFF) + ((long)(buffer[idx++]  & 0xFF) << 8) + ((long)(buffer[idx++]  & 0xFF) << 16) + ((long)(buffer[idx++]  & 0xFF) << 24)
-      + ((long)(buffer[idx++]  & 0xFF) << 32) + ((long)(buffer[idx++]  & 0xFF) << 40) + ((long)(buffer[idx++]  & 0xFF) << 48) + ((long)(buffer[idx++]  & 0xFF) << 56);
+    longValue = (long) LONG_LE.get(buffer, idx);
+    idx += 8;
     return true;
   }
 
@@ -129,6 +184,10 @@ public class DefaultProtobufDecoder implements ProtobufDecoder {
     return idx < len;
   }
 
+  public DefaultProtobufDecoder slice(int index, int length) {
+    return new DefaultProtobufDecoder(buffer).index(index).len(index + length);
+  }
+
   public int decodeVarInt32() {
     return (int) decodeRawVarInt();
   }
@@ -137,23 +196,97 @@ public class DefaultProtobufDecoder implements ProtobufDecoder {
     return decodeRawVarInt();
   }
 
+  public int decodeI32() {
+    int i = idx;
+    if (len - i < 4) {
+      throw new DecodeException();
+    }
+    idx = i + 4;
+    return (int) INT_LE.get(buffer, i);
+  }
+
+  public long decodeI64() {
+    int i = idx;
+    if (len - i < 8) {
+      throw new DecodeException();
+    }
+    idx = i + 8;
+    return (long) LONG_LE.get(buffer, i);
+  }
+
   private long decodeRawVarInt() {
     int i = idx;
-    int l = idx + len;
-    while (i < l) {
-      byte b = buffer[i];
-      i++;
-      if ((b & 0x80) == 0) {
-        long val = 0;
-        int to = idx;
-        idx = i;
-        int from = idx - 1;
-        while (from >= to) {
-          val <<= 7;
-          val += (buffer[from--] & 0x7F);
+    int limit = len;
+    if (i < limit) {
+      byte b0 = buffer[i];
+      if (b0 >= 0) {
+        idx = i + 1;
+        return b0;
+      }
+      if (i + 1 < limit) {
+        byte b1 = buffer[i + 1];
+        if (b1 >= 0) {
+          idx = i + 2;
+          return (b0 & 0x7F) | (b1 << 7);
+        }
+        if (limit - i >= 8) {
+          return decodeRawVarIntBulk(i, limit);
         }
+      }
+    }
+    return decodeRawVarIntSlow(i, limit);
+  }
+
+  /**
+   * Decode a varint reading 8 bytes at once, at least 8 bytes must be readable.
+   */
+  private long decodeRawVarIntBulk(int i, int limit) {
+    long word = (long) LONG_LE.get(buffer, i);
+    long stops = ~word & 0x8080808080808080L;
+    if (stops != 0) {
+      // Number of bytes of the varint (1 to 8)
+      int n = (Long.numberOfTrailingZeros(stops) + 1) >> 3;
+      idx = i + n;
+      return compact(word & (-1L >>> (64 - (n << 3))));
+    }
+    // 9 or 10 bytes
+    long val = compact(word);
+    i += 8;
+    if (i < limit) {
+      byte b8 = buffer[i++];
+      val |= (long) (b8 & 0x7F) << 56;
+      if (b8 >= 0) {
+        idx = i;
+        return val;
+      }
+    }
+    return decodeRawVarIntTail(val, 63, i, limit);
+  }
+
+  /**
+   * Remove the continuation bits of up to 8 little endian varint bytes.
+   */
+  private static long compact(long x) {
+    x = ((x & 0x7F007F007F007F00L) >>> 1) | (x & 0x007F007F007F007FL);
+    x = ((x & 0x3FFF00003FFF0000L) >>> 2) | (x & 0x00003FFF00003FFFL);
+    return ((x & 0x0FFFFFFF00000000L) >>> 4) | (x & 0x000000000FFFFFFFL);
+  }
+
+  private long decodeRawVarIntSlow(int i, int limit) {
+    return decodeRawVarIntTail(0L, 0, i, limit);
+  }
+
+  private long decodeRawVarIntTail(long val, int shift, int i, int limit) {
+    while (i < limit) {
+      byte b = buffer[i++];
+      if (shift < 64) {
+        val |= (long) (b & 0x7F) << shift;
+      }
+      if (b >= 0) {
+        idx = i;
         return val;
       }
+      shift += 7;
     }
     throw new DecodeException();
   }
@@ -28,12 +28,25 @@ public class DefaultProtobufEncoder implements ProtobufEncoder {
     this.index = 0;
   }
 
+  /**
+   * Write to {@code buffer} starting at {@code index}.
+   */
+  public DefaultProtobufEncoder(byte[] buffer, int index) {
+    this.buffer = buffer;
+    this.index = index;
+  }
+
+  DefaultProtobufEncoder reset(int index) {
+    this.index = index;
+    return this;
+  }
+
   public byte[] buffer() {
     return buffer;
   }
 
   public int index() {
-    return index();
+    return index;
   }
 
   public void writeTag(int fieldNumber, int wireType) {
@@ -76,6 +89,22 @@ public class DefaultProtobufEncoder implements ProtobufEncoder {
     index += bytes.length;
   }
 
+  @Override
+  public void writeUtf8String(Utf8String s) {
+    System.arraycopy(s.array(), s.offset(), buffer, index, s.length());
+    index += s.length();
+  }
+
+  @Override
+  public void writeRaw(ProtobufDecoder decoder, int offset, int length) {
+    if (decoder instanceof DefaultProtobufDecoder) {
+      System.arraycopy(((DefaultProtobufDecoder) decoder).buffer(), offset, buffer, index, length);
+      index += length;
+    } else {
+      ProtobufEncoder.super.writeRaw(decoder, offset, length);
+    }
+  }
+
   /**
    * Encode a 4 bytes value to {@code VARINT} format
    * @param out to be written to
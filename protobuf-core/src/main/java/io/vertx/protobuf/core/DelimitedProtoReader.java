@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+import io.vertx.protobuf.schema.MessageType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.util.Arrays;
+
+/**
+ * Read a sequence of length-delimited messages, each message is prefixed by its size encoded as a varint
+ * (the {@code writeDelimitedTo}/{@code parseDelimitedFrom} convention).
+ *
+ * <p>The reader is the {@link ProtoStream} of the current record, {@link #next()} moves to the next record:</p>
+ *
+ * <pre>
+ *   while (reader.next()) {
+ *     reader.accept(visitor);
+ *   }
+ * </pre>
+ *
+ * <p>Records are decoded in place from a single read buffer, reading a record allocates nothing beyond what the
+ * visitor allocates. The buffer grows to hold the largest record, records larger than {@link #maxRecordSize()} are
+ * rejected before the buffer grows.</p>
+ *
+ * <p>Channels must be blocking, a channel returning no data cannot be waited for.</p>
+ */
+public class DelimitedProtoReader implements ProtoStream {
+
+  /**
+   * The default maximum size of a record, the same as the default size limit of the protobuf Java runtime.
+   */
+  public static final int DEFAULT_MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private final MessageType type;
+  private final ProtobufReader reader = new ProtobufReader();
+  private final InputStream in;
+  private final ReadableByteChannel channel;
+  private byte[] buffer;
+  private ByteBuffer channelBuffer;
+  private DefaultProtobufDecoder decoder;
+  private int start;
+  private int end;
+  private int recordStart;
+  private int recordEnd;
+  private boolean eof;
+  private int maxRecordSize = DEFAULT_MAX_RECORD_SIZE;
+
+  public DelimitedProtoReader(MessageType type, byte[] buffer) {
+    this(type, buffer, 0, buffer.length);
+  }
+
+  public DelimitedProtoReader(MessageType type, byte[] buffer, int offset, int length) {
+    this.type = type;
+    this.in = null;
+    this.channel = null;
+    this.buffer = buffer;
+    this.decoder = new DefaultProtobufDecoder(buffer);
+    this.start = offset;
+    this.end = offset + length;
+    this.recordStart = offset;
+    this.recordEnd = offset;
+    this.eof = true;
+  }
+
+  public DelimitedProtoReader(MessageType type, InputStream in) {
+    this.type = type;
+    this.in = in;
+    this.channel = null;
+    this.buffer = new byte[DEFAULT_BUFFER_SIZE];
+    this.decoder = new DefaultProtobufDecoder(buffer);
+  }
+
+  /**
+   * @throws IllegalArgumentException when the channel is in non-blocking mode
+   */
+  public DelimitedProtoReader(MessageType type, ReadableByteChannel channel) {
+    if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+      throw new IllegalArgumentException("Non-blocking channels are not supported");
+    }
+    this.type = type;
+    this.in = null;
+    this.channel = channel;
+    this.buffer = new byte[DEFAULT_BUFFER_SIZE];
+    this.channelBuffer = ByteBuffer.wrap(buffer);
+    this.decoder = new DefaultProtobufDecoder(buffer);
+  }
+
+  /**
+   * @return the maximum size in bytes of a record
+   */
+  public int maxRecordSize() {
+    return maxRecordSize;
+  }
+
+  /**
+   * Set the maximum size in bytes of a record, a larger record is rejected with a {@link DecodeException} before it
+   * is read. The default is {@link #DEFAULT_MAX_RECORD_SIZE}.
+   *
+   * @return this reader
+   */
+  public DelimitedProtoReader maxRecordSize(int maxRecordSize) {
+    if (maxRecordSize < 0) {
+      throw new IllegalArgumentException("Invalid max record size: " + maxRecordSize);
+    }
+    this.maxRecordSize = maxRecordSize;
+    return this;
+  }
+
+  /**
+   * Move to the next record, the previous record cannot be visited anymore.
+   *
+   * @return {@code false} when the end of the input is reached
+   * @throws DecodeException when the input is truncated or cannot be read
+   */
+  public boolean next() throws DecodeException {
+    start = recordEnd;
+    if (!ensure(1)) {
+      return false;
+    }
+    long size = 0;
+    int shift = 0;
+    int prefix = 0;
+    while (true) {
+      if (start + prefix == end && !ensure(prefix + 1)) {
+        throw new DecodeException("Truncated record length");
+      }
+      byte b = buffer[start + prefix++];
+      size |= (long)(b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        break;
+      }
+      shift += 7;
+      if (shift > 28) {
+        throw new DecodeException("Invalid record length");
+      }
+    }
+    if (size > maxRecordSize) {
+      throw new DecodeException("Record size " + size + " exceeds the maximum size of " + maxRecordSize);
+    }
+    if (size > Integer.MAX_VALUE - prefix) {
+      throw new DecodeException("Invalid record length: " + size);
+    }
+    if (!ensure(prefix + (int) size)) {
+      throw new DecodeException("Truncated record");
+    }
+    recordStart = start + prefix;
+    recordEnd = recordStart + (int) size;
+    return true;
+  }
+
+  /**
+   * Visit the current record.
+   */
+  @Override
+  public void accept(ProtoVisitor visitor) {
+    decoder.index(recordStart);
+    decoder.len(recordEnd);
+    visitor.init(type);
+    reader.parse(decoder, type, visitor);
+    visitor.destroy();
+  }
+
+  /**
+   * Ensure at least {@code required} bytes are available from {@code start}, reading more input when needed.
+   */
+  private boolean ensure(int required) {
+    while (end - start < required) {
+      if (eof) {
+        return false;
+      }
+      if (start + required > buffer.length) {
+        // Compact and grow when needed
+        int available = end - start;
+        byte[] dst = required > buffer.length ? new byte[Math.max(required, buffer.length * 2)] : buffer;
+        System.arraycopy(buffer, start, dst, 0, available);
+        if (dst != buffer) {
+          buffer = dst;
+          decoder = new DefaultProtobufDecoder(buffer);
+          if (channel != null) {
+            channelBuffer = ByteBuffer.wrap(buffer);
+          }
+        }
+        start = 0;
+        end = available;
+      }
+      int read;
+      try {
+        if (in != null) {
+          read = in.read(buffer, end, buffer.length - end);
+        } else {
+          channelBuffer.limit(buffer.length).position(end);
+          read = channel.read(channelBuffer);
+        }
+      } catch (IOException e) {
+        throw new DecodeException(e);
+      }
+      if (read == -1) {
+        eof = true;
+      } else if (read == 0) {
+        // A blocking read always returns data, retrying would spin
+        throw new DecodeException("No data read from the input");
+      } else {
+        end += read;
+      }
+    }
+    return true;
+  }
+}
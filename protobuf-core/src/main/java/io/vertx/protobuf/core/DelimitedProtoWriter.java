@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Write a sequence of length-delimited messages, each message is prefixed by its size encoded as a varint
+ * (the {@code writeDelimitedTo}/{@code parseDelimitedFrom} convention).
+ *
+ * <p>A single output buffer and encoder state is reused across records, writing a record allocates nothing
+ * beyond what the record stream allocates.</p>
+ */
+public class DelimitedProtoWriter {
+
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private final OutputStream out;
+  private final WritableByteChannel channel;
+  private final ProtobufWriter.State state = new ProtobufWriter.State();
+  private final ProtobufWriter.ComputePhase computePhase = new ProtobufWriter.ComputePhase();
+  private final ProtobufWriter.EncodingPhase encodingPhase = new ProtobufWriter.EncodingPhase();
+  private final IntFunction<ProtobufEncoder> encoderFactory = this::encoder;
+  private byte[] buffer;
+  private ByteBuffer channelBuffer;
+  private DefaultProtobufEncoder encoder;
+
+  public DelimitedProtoWriter(OutputStream out) {
+    this(out, null);
+  }
+
+  public DelimitedProtoWriter(WritableByteChannel channel) {
+    this(null, channel);
+  }
+
+  private DelimitedProtoWriter(OutputStream out, WritableByteChannel channel) {
+    this.out = out;
+    this.channel = channel;
+    this.buffer = new byte[DEFAULT_BUFFER_SIZE];
+    this.encoder = new DefaultProtobufEncoder(buffer, 0);
+    this.computePhase.state = state;
+    this.encodingPhase.state = state;
+    this.encodingPhase.encoderFactory = encoderFactory;
+  }
+
+  /**
+   * Write a record.
+   *
+   * @return the number of bytes written, including the length prefix
+   * @throws EncodeException when the output cannot be written
+   */
+  public int write(Consumer<ProtoVisitor> record) throws EncodeException {
+    record.accept(computePhase);
+    record.accept(encodingPhase);
+    int length = encoder.index();
+    try {
+      if (out != null) {
+        out.write(buffer, 0, length);
+      } else {
+        channelBuffer.limit(length).position(0);
+        while (channelBuffer.hasRemaining()) {
+          channel.write(channelBuffer);
+        }
+      }
+    } catch (IOException e) {
+      throw new EncodeException(e);
+    }
+    return length;
+  }
+
+  private ProtobufEncoder encoder(int size) {
+    int required = DefaultProtobufEncoder.computeRawVarint32Size(size) + size;
+    if (required > buffer.length) {
+      buffer = new byte[Math.max(required, buffer.length * 2)];
+      encoder = new DefaultProtobufEncoder(buffer, 0);
+      channelBuffer = null;
+    }
+    if (channel != null && channelBuffer == null) {
+      channelBuffer = ByteBuffer.wrap(buffer);
+    }
+    encoder.reset(0);
+    encoder.writeVarInt32(size);
+    return encoder;
+  }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+import io.vertx.protobuf.schema.Field;
+import io.vertx.protobuf.schema.MessageType;
+import io.vertx.protobuf.schema.WireType;
+
+import java.util.Arrays;
+
+/**
+ * An index of the fields of an encoded message, giving random access to a field without parsing the message.
+ *
+ * <p>The message is scanned once at the wire level to record where each field occurrence is, nothing is decoded.
+ * Accessors then decode only the requested field from the original buffer, which must not be modified while
+ * the index is used. The index of an embedded message is built on first access and kept.</p>
+ *
+ * <p>Like when parsing, the last occurrence of a non repeated scalar field wins and the occurrences of an embedded
+ * message field are merged. Absent fields have their default value. An index can be shared between threads.</p>
+ */
+public final class FieldIndex {
+
+  /**
+   * Index the {@code buffer} encoded message.
+   *
+   * @throws DecodeException when the message is not a valid sequence of fields
+   */
+  public static FieldIndex of(MessageType type, byte[] buffer) {
+    return of(type, buffer, 0, buffer.length);
+  }
+
+  /**
+   * Index the message encoded in the {@code length} bytes of {@code buffer} starting at {@code offset}.
+   *
+   * @throws DecodeException when the message is not a valid sequence of fields
+   */
+  public static FieldIndex of(MessageType type, byte[] buffer, int offset, int length) {
+    if (offset < 0 || length < 0 || length > buffer.length - offset) {
+      throw new IndexOutOfBoundsException();
+    }
+    return new FieldIndex(type, buffer, new int[] { offset, offset + length });
+  }
+
+  // Fields numbers below are looked up in a dense array
+  private static final int DENSE_LIMIT = 256;
+
+  private final MessageType type;
+  private final byte[] buffer;
+
+  // Per occurrence, in message order
+  private final int[] tags;
+  private final int[] starts;
+  private final int[] offsets;
+  private final int[] ends;
+  private final int[] next;
+
+  // Per field number, in number order
+  private final int[] numbers;
+  private final int[] first;
+  private final int[] last;
+  private final int[] counts;
+  private final FieldIndex[] nested;
+  private final int[] dense;
+
+  /**
+   * @param ranges the start and end offsets of each range of the message, the ranges of the occurrences of an
+   * embedded message are scanned as a single merged message
+   */
+  private FieldIndex(MessageType type, byte[] buffer, int[] ranges) {
+    int size = 0;
+    int[] tags = new int[16];
+    int[] starts = new int[16];
+    int[] offsets = new int[16];
+    int[] ends = new int[16];
+    DefaultProtobufDecoder decoder = new DefaultProtobufDecoder(buffer, 0, 0);
+    for (int r = 0;r < ranges.length;r += 2) {
+      decoder.reset(buffer, ranges[r], ranges[r + 1] - ranges[r]);
+      while (decoder.isReadable()) {
+        int start = decoder.index();
+        int tag = decoder.decodeVarInt32();
+        if ((tag >>> 3) == 0) {
+          throw new DecodeException("Invalid field number 0");
+        }
+        int offset;
+        if ((tag & 0b0111) == WireType.LEN.id) {
+          int length = ProtobufReader.readLength(decoder);
+          offset = decoder.index();
+          if (length < 0 || length > decoder.len() - offset) {
+            throw new DecodeException();
+          }
+          decoder.index(offset + length);
+        } else {
+          offset = decoder.index();
+          ProtobufReader.skip(decoder, tag & 0b0111);
+        }
+        if (size == tags.length) {
+          tags = Arrays.copyOf(tags, size * 2);
+          starts = Arrays.copyOf(starts, size * 2);
+          offsets = Arrays.copyOf(offsets, size * 2);
+          ends = Arrays.copyOf(ends, size * 2);
+        }
+        tags[size] = tag;
+        starts[size] = start;
+        offsets[size] = offset;
+        ends[size] = decoder.index();
+        size++;
+      }
+    }
+
+    // Group the occurrences per field number, keeping the message order within a number
+    int[] sorted = new int[size];
+    for (int i = 0;i < size;i++) {
+      sorted[i] = tags[i] >>> 3;
+    }
+    Arrays.sort(sorted);
+    int distinct = 0;
+    for (int i = 0;i < size;i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        sorted[distinct++] = sorted[i];
+      }
+    }
+    int[] numbers = Arrays.copyOf(sorted, distinct);
+    int[] first = new int[distinct];
+    int[] last = new int[distinct];
+    int[] counts = new int[distinct];
+    int[] next = new int[size];
+    Arrays.fill(first, -1);
+    for (int i = 0;i < size;i++) {
+      int key = Arrays.binarySearch(numbers, tags[i] >>> 3);
+      next[i] = -1;
+      if (first[key] < 0) {
+        first[key] = i;
+      } else {
+        next[last[key]] = i;
+      }
+      last[key] = i;
+      counts[key]++;
+    }
+    int[] dense = null;
+    if (distinct > 0 && numbers[distinct - 1] < DENSE_LIMIT) {
+      dense = new int[numbers[distinct - 1] + 1];
+      Arrays.fill(dense, -1);
+      for (int key = 0;key < distinct;key++) {
+        dense[numbers[key]] = key;
+      }
+    }
+
+    this.type = type;
+    this.buffer = buffer;
+    this.tags = tags;
+    this.starts = starts;
+    this.offsets = offsets;
+    this.ends = ends;
+    this.next = next;
+    this.numbers = numbers;
+    this.first = first;
+    this.last = last;
+    this.counts = counts;
+    this.nested = new FieldIndex[distinct];
+    this.dense = dense;
+  }
+
+  /**
+   * @return the indexed message type
+   */
+  public MessageType type() {
+    return type;
+  }
+
+  private int key(int number) {
+    if (dense != null) {
+      return number < dense.length ? dense[number] : -1;
+    }
+    int key = Arrays.binarySearch(numbers, number);
+    return key < 0 ? -1 : key;
+  }
+
+  /**
+   * @return whether the message contains at least one occurrence of {@code field}
+   */
+  public boolean has(Field field) {
+    return key(field.number()) >= 0;
+  }
+
+  /**
+   * @return the number of occurrences of {@code field} in the message, a packed field occurrence counts as one
+   */
+  public int count(Field field) {
+    int key = key(field.number());
+    return key < 0 ? 0 : counts[key];
+  }
+
+  /**
+   * Decode and visit the occurrences of {@code field} in message order, the visitor receives the same events as when
+   * parsing the message, without {@link ProtoVisitor#init(MessageType)} and {@link ProtoVisitor#destroy()}.
+   */
+  public void visit(Field field, ProtoVisitor visitor) {
+    int key = key(field.number());
+    if (key < 0) {
+      return;
+    }
+    ProtobufReader reader = ProtobufReader.acquire();
+    try {
+      DefaultProtobufDecoder decoder = new DefaultProtobufDecoder(buffer, 0, 0);
+      for (int i = first[key];i >= 0;i = next[i]) {
+        reader.parse(decoder.reset(buffer, starts[i], ends[i] - starts[i]), type, visitor);
+      }
+    } finally {
+      reader.release();
+    }
+  }
+
+  /**
+   * @return the value of an {@code int32}, {@code uint32}, {@code sint32}, {@code fixed32}, {@code sfixed32} or enum
+   * field
+   */
+  public int getInt(Field field) {
+    int i = lastOf(field);
+    if (i < 0) {
+      return 0;
+    }
+    DefaultProtobufDecoder decoder = decoder(i);
+    switch (field.type().id()) {
+      case INT32:
+      case UINT32:
+      case ENUM:
+        checkWireType(i, WireType.VARINT);
+        return decoder.decodeVarInt32();
+      case SINT32:
+        checkWireType(i, WireType.VARINT);
+        return ProtobufReader.decodeSInt32(decoder.decodeVarInt32());
+      case FIXED32:
+      case SFIXED32:
+        checkWireType(i, WireType.I32);
+        return decoder.decodeI32();
+      default:
+        throw new IllegalArgumentException("Field " + field.protoName() + " of type " + field.type() + " is not an int");
+    }
+  }
+
+  /**
+   * @return the value of an {@code int64}, {@code uint64}, {@code sint64}, {@code fixed64} or {@code sfixed64} field
+   */
+  public long getLong(Field field) {
+    int i = lastOf(field);
+    if (i < 0) {
+      return 0L;
+    }
+    DefaultProtobufDecoder decoder = decoder(i);
+    switch (field.type().id()) {
+      case INT64:
+      case UINT64:
+        checkWireType(i, WireType.VARINT);
+        return decoder.decodeVarInt64();
+      case SINT64:
+        checkWireType(i, WireType.VARINT);
+        return ProtobufReader.decodeSInt64(decoder.decodeVarInt64());
+      case FIXED64:
+      case SFIXED64:
+        checkWireType(i, WireType.I64);
+        return decoder.decodeI64();
+      default:
+        throw new IllegalArgumentException("Field " + field.protoName() + " of type " + field.type() + " is not a long");
+    }
+  }
+
+  /**
+   * @return the value of a {@code bool} field
+   */
+  public boolean getBoolean(Field field) {
+    int i = lastOf(field, WireType.VARINT);
+    return i >= 0 && decoder(i).decodeVarInt64() != 0;
+  }
+
+  /**
+   * @return the value of a {@code float} field
+   */
+  public float getFloat(Field field) {
+    int i = lastOf(field, WireType.I32);
+    if (i < 0) {
+      return 0f;
+    }
+    return Float.intBitsToFloat(decoder(i).decodeI32());
+  }
+
+  /**
+   * @return the value of a {@code double} field
+   */
+  public double getDouble(Field field) {
+    int i = lastOf(field, WireType.I64);
+    if (i < 0) {
+      return 0d;
+    }
+    return Double.longBitsToDouble(decoder(i).decodeI64());
+  }
+
+  /**
+   * @return the value of a {@code string} field
+   */
+  public String getString(Field field) {
+    int i = lastOf(field, WireType.LEN);
+    return i < 0 ? "" : Utf8.decode(buffer, offsets[i], ends[i] - offsets[i]);
+  }
+
+  /**
+   * @return the value of a {@code string} field as a view over the indexed buffer
+   */
+  public Utf8String getUtf8String(Field field) {
+    int i = lastOf(field, WireType.LEN);
+    return i < 0 ? Utf8String.of("") : Utf8String.wrap(buffer, offsets[i], ends[i] - offsets[i]);
+  }
+
+  /**
+   * @return a copy of the value of a {@code bytes} field
+   */
+  public byte[] getBytes(Field field) {
+    int i = lastOf(field, WireType.LEN);
+    return i < 0 ? new byte[0] : Arrays.copyOfRange(buffer, offsets[i], ends[i]);
+  }
+
+  /**
+   * Return a decoder of an embedded message field, the occurrences of the field are merged. The decoder is a view
+   * over the indexed buffer when the field occurs once, otherwise it decodes a copy of the concatenated occurrences.
+   *
+   * @return the decoder or {@code null} when the field is absent
+   */
+  public ProtobufDecoder getMessage(Field field) {
+    int key = key(field.number());
+    if (key < 0) {
+      return null;
+    }
+    if (counts[key] == 1) {
+      int i = first[key];
+      checkWireType(i, WireType.LEN);
+      return decoder(i);
+    }
+    int length = 0;
+    for (int i = first[key];i >= 0;i = next[i]) {
+      checkWireType(i, WireType.LEN);
+      length += ends[i] - offsets[i];
+    }
+    byte[] merged = new byte[length];
+    int pos = 0;
+    for (int i = first[key];i >= 0;i = next[i]) {
+      System.arraycopy(buffer, offsets[i], merged, pos, ends[i] - offsets[i]);
+      pos += ends[i] - offsets[i];
+    }
+    return new DefaultProtobufDecoder(merged);
+  }
+
+  /**
+   * Return the index of an embedded message field, the occurrences of the field are merged. The index is built on
+   * first access.
+   *
+   * @return the index or {@code null} when the field is absent
+   */
+  public FieldIndex index(Field field) {
+    if (!(field.type() instanceof MessageType)) {
+      throw new IllegalArgumentException("Field " + field.protoName() + " is not a message field");
+    }
+    int key = key(field.number());
+    if (key < 0) {
+      return null;
+    }
+    FieldIndex index = nested[key];
+    if (index == null) {
+      int[] ranges = new int[counts[key] * 2];
+      int r = 0;
+      for (int i = first[key];i >= 0;i = next[i]) {
+        checkWireType(i, WireType.LEN);
+        ranges[r++] = offsets[i];
+        ranges[r++] = ends[i];
+      }
+      // Racy but benign, all fields are final
+      index = new FieldIndex((MessageType) field.type(), buffer, ranges);
+      nested[key] = index;
+    }
+    return index;
+  }
+
+  private int lastOf(Field field) {
+    int key = key(field.number());
+    return key < 0 ? -1 : last[key];
+  }
+
+  private int lastOf(Field field, WireType wireType) {
+    int i = lastOf(field);
+    if (i >= 0) {
+      checkWireType(i, wireType);
+    }
+    return i;
+  }
+
+  private void checkWireType(int i, WireType wireType) {
+    int tag = tags[i];
+    if ((tag & 0b0111) != wireType.id) {
+      throw new DecodeException("Invalid wire type " + (tag & 0b0111) + " for field " + (tag >>> 3) + " of type " + type.name());
+    }
+  }
+
+  private DefaultProtobufDecoder decoder(int i) {
+    return new DefaultProtobufDecoder(buffer, offsets[i], ends[i] - offsets[i]);
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+import io.vertx.protobuf.schema.Field;
+import io.vertx.protobuf.schema.MessageType;
+import io.vertx.protobuf.well_known_types.FieldMask;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The fields of a message type kept when parsing with {@link ProtobufReader}, other fields are skipped at the wire
+ * level without being decoded or visited.
+ *
+ * <p>A projection is a tree: each embedded message field it keeps is either kept whole or projected on a nested
+ * projection of the embedded message type. Projections are immutable and can be shared between threads.</p>
+ */
+public final class FieldProjection {
+
+  /**
+   * Keeps a field and its whole sub-tree.
+   */
+  static final FieldProjection ALL = new FieldProjection(null);
+
+  /**
+   * Create a projection keeping the fields of a set.
+   *
+   * <p>A field of the set is kept when its message type is reached. An embedded message field of the set is
+   * projected on the fields of the set declared by its type, when there are none the embedded message is
+   * kept whole.</p>
+   *
+   * @param type the root message type
+   * @param fields the fields to keep
+   */
+  public static FieldProjection of(MessageType type, Collection<? extends Field> fields) {
+    Map<MessageType, FieldProjection> projections = new IdentityHashMap<>();
+    for (Field field : fields) {
+      projections.computeIfAbsent(field.owner(), FieldProjection::new);
+    }
+    for (Field field : fields) {
+      FieldProjection child = ALL;
+      if (field.type() instanceof MessageType) {
+        child = projections.getOrDefault((MessageType) field.type(), ALL);
+      }
+      projections.get(field.owner()).put(field.number(), child);
+    }
+    return projections.getOrDefault(type, new FieldProjection(type));
+  }
+
+  /**
+   * Like {@link #of(MessageType, Collection)}.
+   */
+  public static FieldProjection of(MessageType type, Field... fields) {
+    return of(type, Arrays.asList(fields));
+  }
+
+  /**
+   * Create a projection from the paths of a {@link FieldMask}, see {@link #ofPaths(MessageType, Iterable)}.
+   */
+  public static FieldProjection of(MessageType type, FieldMask mask) {
+    List<String> paths = mask.getPaths();
+    return ofPaths(type, paths != null ? paths : List.of());
+  }
+
+  /**
+   * Create a projection from field mask paths, a path is a dot separated sequence of proto field names, e.g.
+   * {@code header.id}. The last field of a path is kept whole.
+   *
+   * @param type the root message type
+   * @param paths the paths to keep
+   * @throws IllegalArgumentException when a path does not resolve against {@code type}
+   */
+  public static FieldProjection ofPaths(MessageType type, Iterable<String> paths) {
+    FieldProjection root = new FieldProjection(type);
+    for (String path : paths) {
+      FieldProjection current = root;
+      String[] names = path.split("\\.");
+      for (int i = 0;i < names.length;i++) {
+        if (current == ALL) {
+          // A prefix of the path is already kept whole
+          break;
+        }
+        Field field = current.type.fieldByName(names[i]);
+        if (field == null) {
+          throw new IllegalArgumentException("Invalid path " + path + ": no field " + names[i] + " in " + current.type.name());
+        }
+        FieldProjection child;
+        if (i == names.length - 1) {
+          child = ALL;
+        } else if (field.type() instanceof MessageType) {
+          child = current.child(field.number());
+          if (child == null) {
+            child = new FieldProjection((MessageType) field.type());
+          }
+        } else {
+          throw new IllegalArgumentException("Invalid path " + path + ": field " + names[i] + " is not a message");
+        }
+        current.put(field.number(), child);
+        current = child;
+      }
+    }
+    return root;
+  }
+
+  /**
+   * Field numbers below this value are stored in the dense array.
+   */
+  private static final int DENSE_LIMIT = 256;
+
+  private final MessageType type;
+  private FieldProjection[] dense = new FieldProjection[0];
+  private Map<Integer, FieldProjection> sparse;
+
+  private FieldProjection(MessageType type) {
+    this.type = type;
+  }
+
+  /**
+   * @return the projected message type
+   */
+  public MessageType type() {
+    return type;
+  }
+
+  /**
+   * @return whether the field {@code number} is kept
+   */
+  public boolean includes(int number) {
+    return child(number) != null;
+  }
+
+  /**
+   * @return the projection of a field: {@code null} when it is skipped, {@link #ALL} when it is kept whole and
+   * otherwise the projection of the embedded message
+   */
+  FieldProjection child(int number) {
+    if (number < DENSE_LIMIT) {
+      FieldProjection[] d = dense;
+      return number < d.length ? d[number] : null;
+    }
+    return sparse != null ? sparse.get(number) : null;
+  }
+
+  private void put(int number, FieldProjection child) {
+    if (child(number) == ALL) {
+      // Kept whole already
+      return;
+    }
+    if (number < DENSE_LIMIT) {
+      if (number >= dense.length) {
+        dense = Arrays.copyOf(dense, number + 1);
+      }
+      dense[number] = child;
+    } else {
+      if (sparse == null) {
+        sparse = new HashMap<>();
+      }
+      sparse.put(number, child);
+    }
+  }
+}
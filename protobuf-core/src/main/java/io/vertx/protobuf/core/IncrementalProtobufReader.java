@@ -0,0 +1,488 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+import io.vertx.protobuf.schema.Field;
+import io.vertx.protobuf.schema.MessageType;
+import io.vertx.protobuf.schema.TypeID;
+import io.vertx.protobuf.schema.WireType;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A push based reader decoding a message delivered as a sequence of chunks.
+ *
+ * <p>Chunks are given to {@link #feed(byte[], int, int)}, visitor events are emitted as soon as they can be
+ * decoded. The reader keeps the nesting stack and any partially decoded varint, fixed value or length prefix
+ * between chunks, so only string and bytes values spanning several chunks are buffered. Such a value is buffered
+ * as its bytes arrive, the declared length of a value does not allocate by itself.</p>
+ *
+ * <p>{@link #end()} must be called after the last chunk, it checks the message is complete and destroys the
+ * visitor.</p>
+ */
+public class IncrementalProtobufReader {
+
+  private static final int STATE_TAG = 0;
+  private static final int STATE_VARINT = 1;
+  private static final int STATE_I32 = 2;
+  private static final int STATE_I64 = 3;
+  private static final int STATE_LENGTH = 4;
+  private static final int STATE_PAYLOAD = 5;
+
+  private static final int MIN_PAYLOAD_CAPACITY = 256;
+
+  private final ProtoVisitor visitor;
+  private int state;
+  private long position;
+
+  // Nesting stack, index 0 is the root message which has no end
+  private MessageType[] types = new MessageType[8];
+  private Field[] fields = new Field[8];
+  private long[] ends = new long[8];
+  private int depth;
+
+  // Current field
+  private int fieldNumber;
+  private Field field;
+
+  // Current packed field
+  private Field packedField;
+  private long packedEnd;
+
+  // Partial varint
+  private long varint;
+  private int shift;
+
+  // Partial fixed value
+  private long fixed;
+  private int fixedCount;
+
+  // Partial string/bytes value
+  private byte[] payload;
+  private int payloadLength;
+  private int payloadIndex;
+
+  private byte[] scratch;
+
+  private int maxDepth = ProtobufReader.DEFAULT_MAX_DEPTH;
+  private int maxMessageSize = Integer.MAX_VALUE;
+  private int maxFieldLength = Integer.MAX_VALUE;
+  private long maxAllocatedBytes = Long.MAX_VALUE;
+  // Bytes of the string and bytes values decoded so far
+  private long allocatedBytes;
+
+  public IncrementalProtobufReader(MessageType rootType, ProtoVisitor visitor) {
+    this.visitor = visitor;
+    this.types[0] = rootType;
+    this.ends[0] = Long.MAX_VALUE;
+    visitor.init(rootType);
+  }
+
+  /**
+   * @return the maximum nesting of embedded messages
+   */
+  public int maxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Set the maximum nesting of embedded messages, a message nested deeper is rejected with a {@link DecodeException}.
+   *
+   * @return this reader
+   */
+  public IncrementalProtobufReader maxDepth(int maxDepth) {
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException("Invalid max depth: " + maxDepth);
+    }
+    this.maxDepth = maxDepth;
+    return this;
+  }
+
+  /**
+   * @return the maximum size in bytes of the message
+   */
+  public int maxMessageSize() {
+    return maxMessageSize;
+  }
+
+  /**
+   * Set the maximum size in bytes of the message, a chunk fed past this size is rejected with a
+   * {@link DecodeException}. There is no limit by default.
+   *
+   * @return this reader
+   */
+  public IncrementalProtobufReader maxMessageSize(int maxMessageSize) {
+    if (maxMessageSize < 0) {
+      throw new IllegalArgumentException("Invalid max message size: " + maxMessageSize);
+    }
+    this.maxMessageSize = maxMessageSize;
+    return this;
+  }
+
+  /**
+   * @return the maximum length in bytes of a length-delimited field
+   */
+  public int maxFieldLength() {
+    return maxFieldLength;
+  }
+
+  /**
+   * Set the maximum length in bytes of a length-delimited field, i.e. a string, bytes, embedded message or packed
+   * field. A longer field is rejected with a {@link DecodeException} when its length is decoded. There is no limit
+   * by default.
+   *
+   * @return this reader
+   */
+  public IncrementalProtobufReader maxFieldLength(int maxFieldLength) {
+    if (maxFieldLength < 0) {
+      throw new IllegalArgumentException("Invalid max field length: " + maxFieldLength);
+    }
+    this.maxFieldLength = maxFieldLength;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of bytes of the string and bytes values of the message
+   */
+  public long maxAllocatedBytes() {
+    return maxAllocatedBytes;
+  }
+
+  /**
+   * Set the maximum number of bytes of the string and bytes values of the message, they are accounted when their
+   * length is decoded and a message exceeding the quota is rejected with a {@link DecodeException}. There is no limit
+   * by default.
+   *
+   * @return this reader
+   */
+  public IncrementalProtobufReader maxAllocatedBytes(long maxAllocatedBytes) {
+    if (maxAllocatedBytes < 0) {
+      throw new IllegalArgumentException("Invalid max allocated bytes: " + maxAllocatedBytes);
+    }
+    this.maxAllocatedBytes = maxAllocatedBytes;
+    return this;
+  }
+
+  /**
+   * Set all the limits of this reader from {@code limits}.
+   *
+   * @return this reader
+   */
+  public IncrementalProtobufReader limits(ReaderLimits limits) {
+    maxDepth = limits.maxDepth();
+    maxMessageSize = limits.maxMessageSize();
+    maxFieldLength = limits.maxFieldLength();
+    maxAllocatedBytes = limits.maxAllocatedBytes();
+    return this;
+  }
+
+  /**
+   * @return the number of bytes consumed so far
+   */
+  public long position() {
+    return position;
+  }
+
+  public void feed(byte[] chunk) {
+    feed(chunk, 0, chunk.length);
+  }
+
+  public void feed(ByteBuffer chunk) {
+    if (chunk.hasArray()) {
+      feed(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+    } else {
+      ByteBuffer view = chunk.duplicate();
+      if (scratch == null) {
+        scratch = new byte[512];
+      }
+      while (view.hasRemaining()) {
+        int n = Math.min(scratch.length, view.remaining());
+        view.get(scratch, 0, n);
+        feed(scratch, 0, n);
+      }
+    }
+  }
+
+  public void feed(byte[] chunk, int offset, int length) {
+    if (position + length > maxMessageSize) {
+      throw new DecodeException("Message size " + (position + length) + " exceeds the maximum size of " + maxMessageSize);
+    }
+    int idx = offset;
+    int to = offset + length;
+    while (idx < to) {
+      switch (state) {
+        case STATE_TAG:
+        case STATE_VARINT:
+        case STATE_LENGTH: {
+          byte b = chunk[idx++];
+          position++;
+          if (shift < 64) {
+            varint |= (long)(b & 0x7F) << shift;
+          }
+          shift += 7;
+          if ((b & 0x80) != 0) {
+            if (shift >= 70) {
+              throw new DecodeException("Malformed varint");
+            }
+            break;
+          }
+          long value = varint;
+          varint = 0;
+          shift = 0;
+          switch (state) {
+            case STATE_TAG:
+              onTag((int) value);
+              break;
+            case STATE_VARINT:
+              onVarInt(value);
+              break;
+            default:
+              onLength(value);
+              break;
+          }
+          break;
+        }
+        case STATE_I32:
+        case STATE_I64: {
+          fixed |= ((long)chunk[idx++] & 0xFF) << (fixedCount++ * 8);
+          position++;
+          if (state == STATE_I32 ? fixedCount == 4 : fixedCount == 8) {
+            long value = fixed;
+            fixed = 0;
+            fixedCount = 0;
+            onFixed(value);
+          }
+          break;
+        }
+        case STATE_PAYLOAD: {
+          int n = Math.min(to - idx, payloadLength - payloadIndex);
+          if (payload == null) {
+            if (n == payloadLength && field != null && field.type().id() == TypeID.STRING) {
+              // Fast path, the string is contained in the chunk
+              String s = Utf8.decode(chunk, idx, n);
+              idx += n;
+              position += n;
+              visitor.visitString(field, s);
+              afterValue();
+              break;
+            }
+            // The declared length is untrusted, the buffer grows with the received bytes
+            payload = new byte[Math.min(payloadLength, Math.max(n, MIN_PAYLOAD_CAPACITY))];
+          } else if (payloadIndex + n > payload.length) {
+            payload = Arrays.copyOf(payload, (int) Math.min(payloadLength, Math.max(payloadIndex + n, payload.length * 2L)));
+          }
+          System.arraycopy(chunk, idx, payload, payloadIndex, n);
+          idx += n;
+          position += n;
+          payloadIndex += n;
+          if (payloadIndex == payloadLength) {
+            byte[] data = payload;
+            payload = null;
+            onPayload(data);
+          }
+          break;
+        }
+        default:
+          throw new IllegalStateException();
+      }
+    }
+  }
+
+  /**
+   * Signal the end of the input.
+   *
+   * @throws DecodeException when the message is truncated
+   */
+  public void end() throws DecodeException {
+    if (state != STATE_TAG || shift != 0 || depth != 0) {
+      throw new DecodeException("Truncated message");
+    }
+    visitor.destroy();
+  }
+
+  private void onTag(int tag) {
+    int number = tag >>> 3;
+    if (number == 0) {
+      throw new DecodeException();
+    }
+    int decodedWireType = tag & 0b0111;
+    WireType wireType = decodedWireType < ProtobufReader.wireTypes.length ? ProtobufReader.wireTypes[decodedWireType] : null;
+    if (wireType == null) {
+      throw new DecodeException("Invalid wire type: " + decodedWireType);
+    }
+    fieldNumber = number;
+    field = types[depth].field(number);
+    if (field != null && !accepts(field, wireType)) {
+      throw new DecodeException("Invalid wire type " + decodedWireType + " for field " + number + " of type " + field.type());
+    }
+    switch (wireType) {
+      case VARINT:
+        state = STATE_VARINT;
+        break;
+      case I32:
+        state = STATE_I32;
+        break;
+      case I64:
+        state = STATE_I64;
+        break;
+      case LEN:
+        state = STATE_LENGTH;
+        break;
+    }
+  }
+
+  /**
+   * @return whether a value of {@code field} can be encoded with {@code wireType}, scalars can be packed
+   */
+  private static boolean accepts(Field field, WireType wireType) {
+    WireType expected = field.type().wireType();
+    return expected == wireType || (wireType == WireType.LEN && !(field.type() instanceof MessageType));
+  }
+
+  private void onVarInt(long value) {
+    if (field == null) {
+      visitor.visitInt64(types[depth].unknownField(fieldNumber, WireType.VARINT), value);
+    } else {
+      ProtobufReader.dispatchVarInt(field, value, visitor);
+    }
+    afterValue();
+  }
+
+  private void onFixed(long value) {
+    if (state == STATE_I32) {
+      if (field == null) {
+        visitor.visitFixed32(types[depth].unknownField(fieldNumber, WireType.I32), (int) value);
+      } else {
+        ProtobufReader.dispatchI32(field, (int) value, visitor);
+      }
+    } else {
+      if (field == null) {
+        visitor.visitFixed64(types[depth].unknownField(fieldNumber, WireType.I64), value);
+      } else {
+        ProtobufReader.dispatchI64(field, value, visitor);
+      }
+    }
+    afterValue();
+  }
+
+  private void onLength(long value) {
+    int len = (int) value;
+    if (len < 0 || position + len > ends[depth]) {
+      throw new DecodeException("Invalid length: " + value);
+    }
+    if (len > maxFieldLength) {
+      throw new DecodeException("Field length " + len + " exceeds the maximum length of " + maxFieldLength);
+    }
+    if (field == null || field.type().id() == TypeID.STRING || field.type().id() == TypeID.BYTES) {
+      long allocated = allocatedBytes + len;
+      if (allocated > maxAllocatedBytes) {
+        throw new DecodeException("Allocations exceed the maximum of " + maxAllocatedBytes + " bytes");
+      }
+      allocatedBytes = allocated;
+      if (len == 0) {
+        onPayload(new byte[0]);
+      } else {
+        payloadLength = len;
+        payloadIndex = 0;
+        state = STATE_PAYLOAD;
+      }
+    } else if (field.type() instanceof MessageType) {
+      push(field, (MessageType) field.type(), position + len);
+      visitor.enter(field);
+      afterValue();
+    } else {
+      // Packed
+      packedField = field;
+      packedEnd = position + len;
+      visitor.enterPacked(field);
+      nextPacked();
+    }
+  }
+
+  private void onPayload(byte[] data) {
+    if (field == null) {
+      visitor.visitBytes(types[depth].unknownField(fieldNumber, WireType.LEN), data);
+    } else if (field.type().id() == TypeID.STRING) {
+      visitor.visitString(field, Utf8.decode(data, 0, data.length));
+    } else {
+      visitor.visitBytes(field, data);
+    }
+    afterValue();
+  }
+
+  private void nextPacked() {
+    if (position == packedEnd) {
+      Field f = packedField;
+      packedField = null;
+      visitor.leavePacked(f);
+      afterValue();
+    } else {
+      field = packedField;
+      switch (packedField.type().wireType()) {
+        case VARINT:
+          state = STATE_VARINT;
+          break;
+        case I32:
+          state = STATE_I32;
+          break;
+        case I64:
+          state = STATE_I64;
+          break;
+        default:
+          throw new IllegalStateException();
+      }
+    }
+  }
+
+  private void afterValue() {
+    if (packedField != null) {
+      if (position > packedEnd) {
+        throw new DecodeException("Packed element overflows its field");
+      }
+      nextPacked();
+      return;
+    }
+    while (position >= ends[depth]) {
+      if (position > ends[depth]) {
+        throw new DecodeException("Field overflows its message");
+      }
+      Field f = fields[depth];
+      fields[depth] = null;
+      types[depth] = null;
+      depth--;
+      visitor.leave(f);
+    }
+    state = STATE_TAG;
+  }
+
+  private void push(Field field, MessageType type, long end) {
+    int d = depth + 1;
+    if (d > maxDepth) {
+      throw new DecodeException("Message nesting exceeds the maximum depth of " + maxDepth);
+    }
+    if (d == types.length) {
+      types = Arrays.copyOf(types, d * 2);
+      fields = Arrays.copyOf(fields, d * 2);
+      ends = Arrays.copyOf(ends, d * 2);
+    }
+    types[d] = type;
+    fields[d] = field;
+    ends[d] = end;
+    depth = d;
+  }
+}
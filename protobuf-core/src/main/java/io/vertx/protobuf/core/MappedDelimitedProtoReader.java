@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+import io.vertx.protobuf.schema.MessageType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read a file of length-delimited messages by mapping it in memory.
+ *
+ * <p>Opening the file scans it once to build an index of record offsets. The file is mapped as a sequence of
+ * segments, each segment holds whole records, so a record never spans two mappings. Records can then be decoded
+ * in any order and concurrently: {@link #split(int)} cuts the index in ranges of similar byte size that can be
+ * decoded by distinct threads with {@link #forEach(int, int, ProtoVisitor)}.</p>
+ *
+ * <p>Mapped memory is released when the segments are garbage collected, {@link #close()} only closes the
+ * file channel.</p>
+ */
+public class MappedDelimitedProtoReader implements Closeable {
+
+  /**
+   * The default maximum size of a mapped segment.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024 * 1024;
+
+  public static MappedDelimitedProtoReader open(Path file, MessageType type) throws IOException {
+    return open(file, type, DEFAULT_SEGMENT_SIZE);
+  }
+
+  public static MappedDelimitedProtoReader open(Path file, MessageType type, int segmentSize) throws IOException {
+    if (segmentSize <= 0) {
+      throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+    }
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      MappedDelimitedProtoReader reader = new MappedDelimitedProtoReader(type, channel);
+      reader.scan(segmentSize);
+      return reader;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private final MessageType type;
+  private final FileChannel channel;
+  private MappedByteBuffer[] segments = new MappedByteBuffer[4];
+  private long[] segmentStarts = new long[4];
+  private int segmentCount;
+  private long[] offsets = new long[1024];
+  private int[] lengths = new int[1024];
+  private int count;
+
+  private MappedDelimitedProtoReader(MessageType type, FileChannel channel) {
+    this.type = type;
+    this.channel = channel;
+  }
+
+  private void scan(int segmentSize) throws IOException {
+    long size = channel.size();
+    long pos = 0;
+    long segmentStart = 0;
+    MappedByteBuffer segment = null;
+    while (pos < size) {
+      if (segment == null) {
+        segmentStart = pos;
+        segment = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, Math.min(segmentSize, size - segmentStart));
+        addSegment(segment, segmentStart);
+      }
+      int rel = (int) (pos - segmentStart);
+      int limit = segment.limit();
+      // Read the length prefix
+      long length = 0;
+      int shift = 0;
+      int idx = rel;
+      boolean complete = false;
+      while (idx < limit) {
+        byte b = segment.get(idx++);
+        length |= (long)(b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          complete = true;
+          break;
+        }
+        shift += 7;
+        if (shift > 28) {
+          throw new DecodeException("Invalid record length at offset " + pos);
+        }
+      }
+      if (complete && length > Integer.MAX_VALUE - (idx - rel)) {
+        throw new DecodeException("Invalid record length at offset " + pos);
+      }
+      if (!complete || idx + length > limit) {
+        if (segmentStart + limit == size) {
+          throw new DecodeException("Truncated record at offset " + pos);
+        }
+        if (pos == segmentStart) {
+          throw new DecodeException("Record at offset " + pos + " does not fit in a segment");
+        }
+        // Start a new segment with this record
+        segment = null;
+        continue;
+      }
+      addRecord(segmentStart + idx, (int) length);
+      pos = segmentStart + idx + length;
+    }
+  }
+
+  private void addSegment(MappedByteBuffer segment, long start) {
+    if (segmentCount == segments.length) {
+      segments = Arrays.copyOf(segments, segmentCount * 2);
+      segmentStarts = Arrays.copyOf(segmentStarts, segmentCount * 2);
+    }
+    segments[segmentCount] = segment;
+    segmentStarts[segmentCount++] = start;
+  }
+
+  private void addRecord(long offset, int length) {
+    if (count == offsets.length) {
+      offsets = Arrays.copyOf(offsets, count * 2);
+      lengths = Arrays.copyOf(lengths, count * 2);
+    }
+    offsets[count] = offset;
+    lengths[count++] = length;
+  }
+
+  /**
+   * @return the number of records
+   */
+  public int count() {
+    return count;
+  }
+
+  /**
+   * @return the file offset of the record {@code index} content, after its length prefix
+   */
+  public long offset(int index) {
+    checkIndex(index);
+    return offsets[index];
+  }
+
+  /**
+   * @return the length of the record {@code index} content
+   */
+  public int length(int index) {
+    checkIndex(index);
+    return lengths[index];
+  }
+
+  /**
+   * Visit a single record.
+   */
+  public void accept(int index, ProtoVisitor visitor) {
+    forEach(index, index + 1, visitor);
+  }
+
+  /**
+   * Visit the records from {@code from} (inclusive) to {@code to} (exclusive) in sequence, the visitor is
+   * initialized and destroyed for each record. Distinct ranges can be visited concurrently.
+   */
+  public void forEach(int from, int to, ProtoVisitor visitor) {
+    if (from < 0 || to > count || from > to) {
+      throw new IndexOutOfBoundsException("Invalid range [" + from + "," + to + "[");
+    }
+    ProtobufReader reader = new ProtobufReader();
+    int segmentIndex = -1;
+    ByteBufferProtobufDecoder decoder = null;
+    for (int i = from;i < to;i++) {
+      long offset = offsets[i];
+      if (segmentIndex == -1 || segmentIndex + 1 < segmentCount && offset >= segmentStarts[segmentIndex + 1]) {
+        segmentIndex = segmentOf(offset);
+        decoder = new ByteBufferProtobufDecoder(segments[segmentIndex]);
+      }
+      int start = (int) (offset - segmentStarts[segmentIndex]);
+      decoder.index(start);
+      decoder.len(start + lengths[i]);
+      visitor.init(type);
+      reader.parse(decoder, type, visitor);
+      visitor.destroy();
+    }
+  }
+
+  /**
+   * Split the records in at most {@code parts} contiguous ranges of similar byte size.
+   *
+   * @return the range boundaries, range {@code i} spans from {@code boundaries[i]} to {@code boundaries[i + 1]}
+   */
+  public int[] split(int parts) {
+    if (parts <= 0) {
+      throw new IllegalArgumentException("Invalid number of parts: " + parts);
+    }
+    if (count == 0) {
+      return new int[] { 0 };
+    }
+    long first = offsets[0];
+    long total = offsets[count - 1] + lengths[count - 1] - first;
+    int[] boundaries = new int[parts + 1];
+    int n = 1;
+    int index = 0;
+    for (int part = 1;part < parts;part++) {
+      long target = first + total * part / parts;
+      while (index < count && offsets[index] < target) {
+        index++;
+      }
+      if (index > boundaries[n - 1] && index < count) {
+        boundaries[n++] = index;
+      }
+    }
+    boundaries[n++] = count;
+    return Arrays.copyOf(boundaries, n);
+  }
+
+  private int segmentOf(long offset) {
+    int idx = Arrays.binarySearch(segmentStarts, 0, segmentCount, offset);
+    return idx >= 0 ? idx : -idx - 2;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException("Invalid record index " + index);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
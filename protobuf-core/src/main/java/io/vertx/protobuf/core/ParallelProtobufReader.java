@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+import io.vertx.protobuf.schema.Field;
+import io.vertx.protobuf.schema.MessageType;
+import io.vertx.protobuf.schema.WireType;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Decode the elements of a large top level repeated message field in parallel.
+ *
+ * <p>The message is first scanned at the wire level to find the elements of the field, nothing is decoded
+ * during the scan. The elements are then split in ranges of consecutive elements of about the same size in bytes,
+ * each range is decoded by a {@link ForkJoinPool} task with its own visitor. The visitor of a range visits each
+ * element of the range as a message of the field type, i.e. between {@link ProtoVisitor#init(MessageType)} and
+ * {@link ProtoVisitor#destroy()}, in the order of the message.</p>
+ *
+ * <p>The other fields of the message are not visited.</p>
+ */
+public final class ParallelProtobufReader {
+
+  /**
+   * The default size in bytes of a range of elements decoded by a task.
+   */
+  public static final int DEFAULT_RANGE_SIZE = 1024 * 1024;
+
+  private ParallelProtobufReader() {
+  }
+
+  /**
+   * Like {@link #parse(MessageType, Field, byte[], Supplier, ForkJoinPool, int)} with the common pool and
+   * {@link #DEFAULT_RANGE_SIZE}.
+   */
+  public static <V extends ProtoVisitor> List<V> parse(MessageType rootType, Field field, byte[] buffer, Supplier<? extends V> visitorFactory) {
+    return parse(rootType, field, buffer, visitorFactory, ForkJoinPool.commonPool(), DEFAULT_RANGE_SIZE);
+  }
+
+  /**
+   * Decode the elements of the repeated message {@code field} of a {@code rootType} message.
+   *
+   * @param visitorFactory creates the visitor of a range, the factory is called from the pool threads
+   * @param rangeSize the size in bytes of a range of elements decoded by a task
+   * @return the visitors of the ranges in the order of the elements, the caller merges their results
+   * @throws DecodeException when the message is invalid
+   */
+  public static <V extends ProtoVisitor> List<V> parse(MessageType rootType, Field field, byte[] buffer, Supplier<? extends V> visitorFactory, ForkJoinPool pool, int rangeSize) {
+    return parse(rootType, field, buffer, visitorFactory, pool, rangeSize, new ReaderLimits());
+  }
+
+  /**
+   * Like {@link #parse(MessageType, Field, byte[], Supplier, ForkJoinPool, int)}, the message is parsed with
+   * {@code limits}. The size and field length limits are checked when the message is scanned, the elements are
+   * parsed one level deep. The allocation quota applies to the whole message, elements decoded concurrently can
+   * exceed it by the allocations of the elements being decoded when it is reached.
+   *
+   * @throws DecodeException when the message is invalid or exceeds the limits
+   */
+  @SuppressWarnings("unchecked")
+  public static <V extends ProtoVisitor> List<V> parse(MessageType rootType, Field field, byte[] buffer, Supplier<? extends V> visitorFactory, ForkJoinPool pool, int rangeSize, ReaderLimits limits) {
+    if (rootType.field(field.number()) != field || !field.isRepeated() || !(field.type() instanceof MessageType)) {
+      throw new IllegalArgumentException("Field " + field.protoName() + " is not a repeated message field of " + rootType.name());
+    }
+    if (rangeSize <= 0) {
+      throw new IllegalArgumentException("Invalid range size: " + rangeSize);
+    }
+    if (buffer.length > limits.maxMessageSize()) {
+      throw new DecodeException("Message size " + buffer.length + " exceeds the maximum size of " + limits.maxMessageSize());
+    }
+    Elements elements = scan(buffer, field.number(), limits.maxFieldLength());
+    if (elements.size > 0 && limits.maxDepth() == 0) {
+      throw new DecodeException("Message nesting exceeds the maximum depth of 0");
+    }
+    int[] ranges = ranges(elements, rangeSize);
+    Object[] visitors = new Object[ranges.length - 1];
+    Quota quota = new Quota(limits);
+    Task task = new Task((MessageType) field.type(), buffer, elements, ranges, visitors, visitorFactory, quota, 0, visitors.length);
+    if (visitors.length == 1) {
+      task.compute();
+    } else if (visitors.length > 1) {
+      pool.invoke(task);
+    }
+    return (List<V>) (List<?>) Arrays.asList(visitors);
+  }
+
+  /**
+   * The offset and length of each element.
+   */
+  static final class Elements {
+    int[] offsets = new int[16];
+    int[] lengths = new int[16];
+    int size;
+
+    void add(int offset, int length) {
+      if (size == offsets.length) {
+        offsets = Arrays.copyOf(offsets, size * 2);
+        lengths = Arrays.copyOf(lengths, size * 2);
+      }
+      offsets[size] = offset;
+      lengths[size] = length;
+      size++;
+    }
+  }
+
+  static Elements scan(byte[] buffer, int fieldNumber, int maxFieldLength) {
+    Elements elements = new Elements();
+    DefaultProtobufDecoder decoder = new DefaultProtobufDecoder(buffer);
+    while (decoder.isReadable()) {
+      int tag = decoder.decodeVarInt32();
+      int wireType = tag & 0b0111;
+      if (tag >>> 3 == fieldNumber) {
+        if (wireType != WireType.LEN.id) {
+          throw new DecodeException("Invalid wire type " + wireType + " for field " + fieldNumber);
+        }
+        int length = ProtobufReader.readLength(decoder);
+        int offset = decoder.index();
+        if (length < 0 || length > decoder.len() - offset) {
+          throw new DecodeException();
+        }
+        if (length > maxFieldLength) {
+          throw new DecodeException("Field length " + length + " exceeds the maximum length of " + maxFieldLength);
+        }
+        decoder.index(offset + length);
+        elements.add(offset, length);
+      } else {
+        ProtobufReader.skip(decoder, wireType);
+      }
+    }
+    return elements;
+  }
+
+  /**
+   * @return the index of the first element of each range followed by the number of elements
+   */
+  static int[] ranges(Elements elements, int rangeSize) {
+    int[] ranges = new int[8];
+    int count = 0;
+    long size = 0;
+    for (int i = 0;i < elements.size;i++) {
+      if (i == 0 || size >= rangeSize) {
+        if (count == ranges.length) {
+          ranges = Arrays.copyOf(ranges, count * 2);
+        }
+        ranges[count++] = i;
+        size = 0;
+      }
+      size += elements.lengths[i];
+    }
+    if (count == ranges.length) {
+      ranges = Arrays.copyOf(ranges, count + 1);
+    }
+    ranges[count++] = elements.size;
+    return Arrays.copyOf(ranges, count);
+  }
+
+  /**
+   * The limits of the elements and the bytes allocated by the tasks.
+   */
+  private static class Quota {
+
+    private final ReaderLimits limits;
+    private final AtomicLong allocated = new AtomicLong();
+
+    Quota(ReaderLimits limits) {
+      this.limits = limits;
+    }
+
+    /**
+     * Configure a reader for the next element, the quota left to the element is the quota left to the message.
+     */
+    void configure(ProtobufReader reader) {
+      reader.limits(limits)
+        .maxDepth(limits.maxDepth() - 1)
+        .maxAllocatedBytes(Math.max(0, limits.maxAllocatedBytes() - allocated.get()));
+    }
+
+    /**
+     * Account the bytes allocated by the reader for an element.
+     */
+    void account(ProtobufReader reader) {
+      long total = allocated.addAndGet(reader.allocatedBytes());
+      if (total > limits.maxAllocatedBytes()) {
+        throw new DecodeException("Allocations exceed the maximum of " + limits.maxAllocatedBytes() + " bytes");
+      }
+    }
+  }
+
+  /**
+   * Decode the ranges between {@code from} and {@code to}, split in two tasks until a single range remains.
+   */
+  @SuppressWarnings("serial")
+  private static class Task extends RecursiveAction {
+
+    private final MessageType type;
+    private final byte[] buffer;
+    private final Elements elements;
+    private final int[] ranges;
+    private final Object[] visitors;
+    private final Supplier<? extends ProtoVisitor> visitorFactory;
+    private final Quota quota;
+    private final int from;
+    private final int to;
+
+    Task(MessageType type, byte[] buffer, Elements elements, int[] ranges, Object[] visitors, Supplier<? extends ProtoVisitor> visitorFactory, Quota quota, int from, int to) {
+      this.type = type;
+      this.buffer = buffer;
+      this.elements = elements;
+      this.ranges = ranges;
+      this.visitors = visitors;
+      this.visitorFactory = visitorFactory;
+      this.quota = quota;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > 1) {
+        int mid = (from + to) >>> 1;
+        invokeAll(
+          new Task(type, buffer, elements, ranges, visitors, visitorFactory, quota, from, mid),
+          new Task(type, buffer, elements, ranges, visitors, visitorFactory, quota, mid, to));
+      } else {
+        ProtoVisitor visitor = visitorFactory.get();
+        ProtobufReader reader = ProtobufReader.acquire();
+        try {
+          for (int i = ranges[from];i < ranges[from + 1];i++) {
+            quota.configure(reader);
+            reader.read(type, visitor, buffer, elements.offsets[i], elements.lengths[i]);
+            quota.account(reader);
+          }
+        } finally {
+          reader.release();
+        }
+        visitors[from] = visitor;
+      }
+    }
+  }
+}
@@ -82,6 +82,53 @@ public interface ProtoVisitor {
     }
   }
 
+  /**
+   * Decide whether the embedded message of {@code field} is delivered undecoded to
+   * {@link #visitEmbeddedRaw(Field, ProtobufDecoder, int, int)} instead of being decoded as a sequence of events
+   * between {@link #enter(Field)} and {@link #leave(Field)}.
+   *
+   * @return {@code true} to receive the message as a raw slice, the default returns {@code false}
+   */
+  default boolean isEmbeddedRaw(Field field) {
+    return false;
+  }
+
+  /**
+   * Visit an undecoded embedded message, the message bytes are the {@code length} bytes starting at the absolute
+   * {@code offset} of {@code decoder}.
+   *
+   * <p>The decoder is the decoder of the enclosing message and must not be modified, {@link ProtobufDecoder#slice(int, int)}
+   * gives an independent decoder of the message that can be parsed later with {@link ProtobufReader}. The slice is
+   * valid as long as the underlying buffer is not modified.</p>
+   *
+   * <p>The default implementation decodes the message with the limits of the reader calling this method.</p>
+   */
+  default void visitEmbeddedRaw(Field field, ProtobufDecoder decoder, int offset, int length) {
+    enter(field);
+    ProtobufReader.parseEmbedded(decoder.slice(offset, length), (MessageType) field.type(), this);
+    leave(field);
+  }
+
+  /**
+   * @return how the reader reports unknown fields to this visitor, the default is {@link UnknownFieldMode#VISIT}
+   */
+  default UnknownFieldMode unknownFieldMode() {
+    return UnknownFieldMode.VISIT;
+  }
+
+  /**
+   * Visit a run of consecutive unknown fields of a message in {@link UnknownFieldMode#PRESERVE} mode, the fields
+   * are the {@code length} bytes starting at the absolute {@code offset} of {@code decoder}, tags included, so they
+   * can be copied as is to an output.
+   *
+   * <p>The decoder must not be modified, the range is valid as long as the underlying buffer is not modified.</p>
+   *
+   * <p>The default implementation decodes the fields and visits them like {@link UnknownFieldMode#VISIT}.</p>
+   */
+  default void visitUnknownRaw(MessageType type, ProtobufDecoder decoder, int offset, int length) {
+    ProtobufReader.visitUnknown(type, decoder.slice(offset, length), this);
+  }
+
 //  void enterMap(Field field);
 //
 //  void leaveMap(Field field);
@@ -92,12 +139,222 @@ public interface ProtoVisitor {
 
   void visitString(Field field, String s);
 
+  /**
+   * @return whether the reader visits string fields with {@link #visitString(Field, Utf8String)} instead of
+   * decoding them to {@link String}, the default returns {@code false}
+   */
+  default boolean utf8Strings() {
+    return false;
+  }
+
+  /**
+   * Visit a string field without decoding it, the default implementation decodes the string and calls
+   * {@link #visitString(Field, String)}.
+   */
+  default void visitString(Field field, Utf8String s) {
+    visitString(field, s.toString());
+  }
+
   void visitBytes(Field field, byte[] bytes);
 
   void enterPacked(Field field);
 
   void leavePacked(Field field);
 
+  // Bulk repeated values
+
+  /**
+   * Visit the values of a repeated {@code int32} field held between {@code from} (inclusive) and {@code to}
+   * (exclusive) of {@code values}, all the values of a packed field are visited by a single call.
+   *
+   * <p>The array is only valid during the call, it must not be retained nor modified.</p>
+   *
+   * <p>The default implementation visits each value with {@link #visitInt32(Field, int)}, between
+   * {@link #enterPacked(Field)} and {@link #leavePacked(Field)} when the field is packed, the other
+   * {@code visitPackedXXX} methods behave the same.</p>
+   */
+  default void visitPackedInt32(Field field, int[] values, int from, int to) {
+    boolean packed = field.isPacked();
+    if (packed) {
+      enterPacked(field);
+    }
+    for (int i = from;i < to;i++) {
+      visitInt32(field, values[i]);
+    }
+    if (packed) {
+      leavePacked(field);
+    }
+  }
+
+  default void visitPackedUInt32(Field field, int[] values, int from, int to) {
+    boolean packed = field.isPacked();
+    if (packed) {
+      enterPacked(field);
+    }
+    for (int i = from;i < to;i++) {
+      visitUInt32(field, values[i]);
+    }
+    if (packed) {
+      leavePacked(field);
+    }
+  }
+
+  default void visitPackedSInt32(Field field, int[] values, int from, int to) {
+    boolean packed = field.isPacked();
+    if (packed) {
+      enterPacked(field);
+    }
+    for (int i = from;i < to;i++) {
+      visitSInt32(field, values[i]);
+    }
+    if (packed) {
+      leavePacked(field);
+    }
+  }
+
+  default void visitPackedEnum(Field field, int[] values, int from, int to) {
+    boolean packed = field.isPacked();
+    if (packed) {
+      enterPacked(field);
+    }
+    for (int i = from;i < to;i++) {
+      visitEnum(field, values[i]);
+    }
+    if (packed) {
+      leavePacked(field);
+    }
+  }
+
+  default void visitPackedInt64(Field field, long[] values, int from, int to) {
+    boolean packed = field.isPacked();
+    if (packed) {
+      enterPacked(field);
+    }
+    for (int i = from;i < to;i++) {
+      visitInt64(field, values[i]);
+    }
+    if (packed) {
+      leavePacked(field);
+    }
+  }
+
+  default void visitPackedUInt64(Field field, long[] values, int from, int to) {
+    boolean packed = field.isPacked();
+    if (packed) {
+      enterPacked(field);
+    }
+    for (int i = from;i < to;i++) {
+      visitUInt64(field, values[i]);
+    }
+    if (packed) {
+      leavePacked(field);
+    }
+  }
+
+  default void visitPackedSInt64(Field field, long[] values, int from, int to) {
+    boolean packed = field.isPacked();
+    if (packed) {
+      enterPacked(field);
+    }
+    for (int i = from;i < to;i++) {
+      visitSInt64(field, values[i]);
+    }
+    if (packed) {
+      leavePacked(field);
+    }
+  }
+
+  default void visitPackedBool(Field field, boolean[] values, int from, int to) {
+    boolean packed = field.isPacked();
+    if (packed) {
+      enterPacked(field);
+    }
+    for (int i = from;i < to;i++) {
+      visitBool(field, values[i]);
+    }
+    if (packed) {
+      leavePacked(field);
+    }
+  }
+
+  default void visitPackedDouble(Field field, double[] values, int from, int to) {
+    boolean packed = field.isPacked();
+    if (packed) {
+      enterPacked(field);
+    }
+    for (int i = from;i < to;i++) {
+      visitDouble(field, values[i]);
+    }
+    if (packed) {
+      leavePacked(field);
+    }
+  }
+
+  default void visitPackedFixed64(Field field, long[] values, int from, int to) {
+    boolean packed = field.isPacked();
+    if (packed) {
+      enterPacked(field);
+    }
+    for (int i = from;i < to;i++) {
+      visitFixed64(field, values[i]);
+    }
+    if (packed) {
+      leavePacked(field);
+    }
+  }
+
+  default void visitPackedSFixed64(Field field, long[] values, int from, int to) {
+    boolean packed = field.isPacked();
+    if (packed) {
+      enterPacked(field);
+    }
+    for (int i = from;i < to;i++) {
+      visitSFixed64(field, values[i]);
+    }
+    if (packed) {
+      leavePacked(field);
+    }
+  }
+
+  default void visitPackedFloat(Field field, float[] values, int from, int to) {
+    boolean packed = field.isPacked();
+    if (packed) {
+      enterPacked(field);
+    }
+    for (int i = from;i < to;i++) {
+      visitFloat(field, values[i]);
+    }
+    if (packed) {
+      leavePacked(field);
+    }
+  }
+
+  default void visitPackedFixed32(Field field, int[] values, int from, int to) {
+    boolean packed = field.isPacked();
+    if (packed) {
+      enterPacked(field);
+    }
+    for (int i = from;i < to;i++) {
+      visitFixed32(field, values[i]);
+    }
+    if (packed) {
+      leavePacked(field);
+    }
+  }
+
+  default void visitPackedSFixed32(Field field, int[] values, int from, int to) {
+    boolean packed = field.isPacked();
+    if (packed) {
+      enterPacked(field);
+    }
+    for (int i = from;i < to;i++) {
+      visitSFixed32(field, values[i]);
+    }
+    if (packed) {
+      leavePacked(field);
+    }
+  }
+
   //
 
   default void visitInt32(Field field, Iterator<Integer> iterator) {
@@ -30,6 +30,13 @@ public interface ProtobufDecoder {
 
   byte[] readBytes(int lengthInBytes);
 
+  /**
+   * Read a string without decoding it, the default implementation copies the bytes.
+   */
+  default Utf8String readUtf8String(int lengthInBytes) {
+    return Utf8String.wrap(readBytes(lengthInBytes));
+  }
+
   boolean readTag();
 
   int fieldNumber();
@@ -50,4 +57,72 @@ public interface ProtobufDecoder {
 
   boolean isReadable();
 
+  // Value returning reads, errors are signaled with a DecodeException instead of a boolean
+
+  /**
+   * Decode a varint and return its lower 32 bits, unlike {@link #readVarInt32()} the value is returned instead of
+   * being stored in the decoder.
+   *
+   * @throws DecodeException when the varint is truncated
+   */
+  default int decodeVarInt32() {
+    if (!readVarInt32()) {
+      throw new DecodeException();
+    }
+    return intValue();
+  }
+
+  /**
+   * Decode a varint, see {@link #decodeVarInt32()}.
+   *
+   * @throws DecodeException when the varint is truncated
+   */
+  default long decodeVarInt64() {
+    if (!readVarInt64()) {
+      throw new DecodeException();
+    }
+    return longValue();
+  }
+
+  /**
+   * Decode a little endian 32 bits value.
+   *
+   * @throws DecodeException when less than 4 bytes are readable
+   */
+  default int decodeI32() {
+    if (len() - index() < 4 || !readI32()) {
+      throw new DecodeException();
+    }
+    return intValue();
+  }
+
+  /**
+   * Decode a little endian 64 bits value.
+   *
+   * @throws DecodeException when less than 8 bytes are readable
+   */
+  default long decodeI64() {
+    if (len() - index() < 8 || !readI64()) {
+      throw new DecodeException();
+    }
+    return longValue();
+  }
+
+  /**
+   * Create a decoder of the {@code length} bytes starting at the absolute {@code index}, the state of this decoder is
+   * not modified. The returned decoder reads from its {@link #index()} to its {@link #len()}.
+   *
+   * <p>The default implementation copies the bytes, implementations share the content instead.</p>
+   */
+  default ProtobufDecoder slice(int index, int length) {
+    int prevIndex = index();
+    int prevLen = len();
+    try {
+      len(index + length).index(index);
+      return new DefaultProtobufDecoder(readBytes(length));
+    } finally {
+      len(prevLen).index(prevIndex);
+    }
+  }
+
 }
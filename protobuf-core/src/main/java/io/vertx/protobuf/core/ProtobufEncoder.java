@@ -36,4 +36,19 @@ public interface ProtobufEncoder {
 
   void writeBinary(byte[] bytes);
 
+  /**
+   * Write the bytes of a string, the default implementation copies them first.
+   */
+  default void writeUtf8String(Utf8String s) {
+    writeBinary(s.getBytes());
+  }
+
+  /**
+   * Copy the {@code length} bytes starting at the absolute {@code offset} of a decoder, the decoder state is not
+   * modified.
+   */
+  default void writeRaw(ProtobufDecoder decoder, int offset, int length) {
+    writeBinary(decoder.slice(offset, length).readBytes(length));
+  }
+
 }
@@ -16,19 +16,19 @@
  */
 package io.vertx.protobuf.core;
 
-import io.vertx.protobuf.schema.EnumType;
 import io.vertx.protobuf.schema.Field;
 import io.vertx.protobuf.schema.MessageType;
-import io.vertx.protobuf.schema.ScalarType;
 import io.vertx.protobuf.schema.WireType;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class ProtobufReader {
 
-  private static final WireType[] wireTypes = {
+  static final WireType[] wireTypes = {
     WireType.VARINT,
     WireType.I64,
     WireType.LEN,
@@ -40,13 +40,7 @@ public class ProtobufReader {
     null
   };
 
-  private static void parseI64(ProtobufDecoder decoder, Field field, ProtoVisitor visitor) {
-    assertTrue(decoder.readI64());
-    long v = decoder.longValue();
-    dispatchI64(field, v, visitor);
-  }
-
-  private static void dispatchI64(Field field, long value, ProtoVisitor visitor) {
+  static void dispatchI64(Field field, long value, ProtoVisitor visitor) {
     switch (field.type().id()) {
       case FIXED64:
         visitor.visitFixed64(field, value);
@@ -62,7 +56,7 @@ public class ProtobufReader {
     }
   }
 
-  private static void dispatchI32(Field field, int value, ProtoVisitor visitor) {
+  static void dispatchI32(Field field, int value, ProtoVisitor visitor) {
     switch (field.type().id()) {
       case FIXED32:
         visitor.visitFixed32(field, value);
@@ -78,12 +72,6 @@ public class ProtobufReader {
     }
   }
 
-  private static void parseI32(ProtobufDecoder decoder, Field field, ProtoVisitor visitor) {
-    assertTrue(decoder.readI32());
-    int v = decoder.intValue();
-    dispatchI32(field, v, visitor);
-  }
-
   public static int decodeSInt32(int value) {
     return (value >>> 1) ^ - (value & 1);
   }
@@ -92,71 +80,37 @@ public class ProtobufReader {
     return (value >>> 1) ^ - (value & 1);
   }
 
-  private static void parseVarInt(ProtobufDecoder decoder, Field field, ProtoVisitor visitor) {
+  static void dispatchVarInt(Field field, long value, ProtoVisitor visitor) {
     switch (field.type().id()) {
       case SINT32:
-        assertTrue(decoder.readVarInt32());
-        visitor.visitSInt32(field, decodeSInt32(decoder.intValue()));
+        visitor.visitSInt32(field, decodeSInt32((int) value));
         break;
       case ENUM:
-        assertTrue(decoder.readVarInt32());
-        visitor.visitEnum(field, decoder.intValue());
+        visitor.visitEnum(field, (int) value);
         break;
       case UINT32:
-        assertTrue(decoder.readVarInt32());
-        visitor.visitUInt32(field, decoder.intValue());
+        visitor.visitUInt32(field, (int) value);
         break;
       case INT32:
-        assertTrue(decoder.readVarInt32());
-        visitor.visitInt32(field, decoder.intValue());
+        visitor.visitInt32(field, (int) value);
         break;
       case SINT64:
-        assertTrue(decoder.readVarInt64());
-        visitor.visitSInt64(field, decodeSInt64(decoder.longValue()));
+        visitor.visitSInt64(field, decodeSInt64(value));
         break;
       case INT64:
-        assertTrue(decoder.readVarInt64());
-        visitor.visitInt64(field, decoder.longValue());
+        visitor.visitInt64(field, value);
         break;
       case UINT64:
-        assertTrue(decoder.readVarInt64());
-        visitor.visitUInt64(field, decoder.longValue());
+        visitor.visitUInt64(field, value);
         break;
       case BOOL:
-        assertTrue(decoder.readVarInt64());
-        visitor.visitBool(field, decoder.longValue() != 0);
+        visitor.visitBool(field, value != 0);
         break;
       default:
         throw new UnsupportedOperationException("" + field.type());
     }
   }
 
-  private static void parseUnknownLen(ProtobufDecoder decoder, MessageType messageType, int fieldNumber, ProtoVisitor unknownFieldHandler) {
-    assertTrue(decoder.readVarInt32());
-    int len = decoder.intValue();
-    byte[] data = decoder.readBytes(len);
-    Field field = messageType.unknownField(fieldNumber, WireType.LEN);
-    unknownFieldHandler.visitBytes(field, data);
-  }
-
-  private static void parseUnknownI32(ProtobufDecoder decoder, MessageType messageType, int fieldNumber, ProtoVisitor unknownFieldHandler) {
-    assertTrue(decoder.readI32());
-    int v = decoder.intValue();
-    unknownFieldHandler.visitFixed32(messageType.unknownField(fieldNumber, WireType.I32), v);
-  }
-
-  private static void parseUnknownI64(ProtobufDecoder decoder, MessageType messageType, int fieldNumber, ProtoVisitor unknownFieldHandler) {
-    assertTrue(decoder.readI64());
-    long v = decoder.longValue();
-    unknownFieldHandler.visitFixed64(messageType.unknownField(fieldNumber, WireType.I64), v);
-  }
-
-  private static void parseUnknownVarInt(ProtobufDecoder decoder, MessageType messageType, int fieldNumber, ProtoVisitor unknownFieldHandler) {
-    assertTrue(decoder.readVarInt64());
-    long v = decoder.longValue();
-    unknownFieldHandler.visitInt64(messageType.unknownField(fieldNumber, WireType.VARINT), v);
-  }
-
   private static class Region {
     final int from;
     final int to;
@@ -170,152 +124,871 @@ public class ProtobufReader {
     Map<Integer, List<Region>> cumulations = new LinkedHashMap<>();
   }
 
-  private void parseLen(ProtobufDecoder decoder, Field field, ProtoVisitor visitor) {
-    assertTrue(decoder.readVarInt32());
-    int len = decoder.intValue();
-    if (field.type() instanceof MessageType) {
-      int to = decoder.len();
-      decoder.len(decoder.index() + len);
-      visitor.enter(field);
-      MessageType messageType = (MessageType) field.type();
-      parse(decoder, messageType, visitor);
-      decoder.len(to);
-      visitor.leave(field);
-    } else if (field.type() instanceof EnumType) {
-      visitor.enterPacked(field);
-      parsePackedVarInt32(decoder, field, len, visitor);
-      visitor.leavePacked(field);
+  public static ProtoStream readerStream(MessageType rootType, byte[] buffer) {
+    return v -> parse(rootType, v, buffer);
+  }
+
+  public static ProtoStream readerStream(MessageType rootType, ByteBuffer buffer) {
+    return v -> parse(rootType, v, buffer);
+  }
+
+  public static ProtoStream readerStream(MessageType rootType, byte[] buffer, FieldProjection projection) {
+    return v -> parse(rootType, v, buffer, projection);
+  }
+
+  /**
+   * Like {@link #readerStream(MessageType, byte[])}, the message is parsed with {@code limits}.
+   */
+  public static ProtoStream readerStream(MessageType rootType, byte[] buffer, ReaderLimits limits) {
+    return v -> parse(rootType, v, buffer, limits);
+  }
+
+  /**
+   * Like {@link #readerStream(MessageType, ByteBuffer)}, the message is parsed with {@code limits}.
+   */
+  public static ProtoStream readerStream(MessageType rootType, ByteBuffer buffer, ReaderLimits limits) {
+    return v -> parse(rootType, v, buffer, limits);
+  }
+
+  public static void parse(MessageType rootType, ProtoVisitor visitor, byte[] buffer) {
+    parse(rootType, visitor, buffer, 0, buffer.length);
+  }
+
+  /**
+   * Parse a message with {@code limits} instead of the default limits, an invalid message or a message exceeding the
+   * limits is rejected with a {@link DecodeException}.
+   */
+  public static void parse(MessageType rootType, ProtoVisitor visitor, byte[] buffer, ReaderLimits limits) {
+    parse(rootType, visitor, buffer, 0, buffer.length, limits);
+  }
+
+  /**
+   * Parse the {@code length} bytes of {@code buffer} starting at {@code offset} with the reader of the current
+   * thread.
+   */
+  public static void parse(MessageType rootType, ProtoVisitor visitor, byte[] buffer, int offset, int length) {
+    parse(rootType, visitor, buffer, offset, length, null);
+  }
+
+  /**
+   * Like {@link #parse(MessageType, ProtoVisitor, byte[], int, int)}, the message is parsed with {@code limits}.
+   */
+  public static void parse(MessageType rootType, ProtoVisitor visitor, byte[] buffer, int offset, int length, ReaderLimits limits) {
+    ProtobufReader reader = acquire(limits);
+    try {
+      reader.read(rootType, visitor, buffer, offset, length, null);
+    } finally {
+      reader.release();
+    }
+  }
+
+  /**
+   * Parse only the fields of a projection of {@code rootType}, other fields are skipped without being decoded.
+   */
+  public static void parse(MessageType rootType, ProtoVisitor visitor, byte[] buffer, FieldProjection projection) {
+    parse(rootType, visitor, buffer, projection, null);
+  }
+
+  /**
+   * Like {@link #parse(MessageType, ProtoVisitor, byte[], FieldProjection)}, the message is parsed with {@code limits}.
+   */
+  public static void parse(MessageType rootType, ProtoVisitor visitor, byte[] buffer, FieldProjection projection, ReaderLimits limits) {
+    ProtobufReader reader = acquire(limits);
+    try {
+      reader.read(rootType, visitor, buffer, 0, buffer.length, projection);
+    } finally {
+      reader.release();
+    }
+  }
+
+  /**
+   * Parse the bytes between the position and the limit of a {@link ByteBuffer}, heap or direct, the buffer
+   * position and limit are left untouched.
+   */
+  public static void parse(MessageType rootType, ProtoVisitor visitor, ByteBuffer buffer) {
+    parse(rootType, visitor, new ByteBufferProtobufDecoder(buffer));
+  }
+
+  /**
+   * Like {@link #parse(MessageType, ProtoVisitor, ByteBuffer)}, the message is parsed with {@code limits}.
+   */
+  public static void parse(MessageType rootType, ProtoVisitor visitor, ByteBuffer buffer, ReaderLimits limits) {
+    parse(rootType, visitor, new ByteBufferProtobufDecoder(buffer), limits);
+  }
+
+  /**
+   * Parse the readable bytes of a decoder, e.g. an embedded message slice obtained from
+   * {@link ProtoVisitor#visitEmbeddedRaw(Field, ProtobufDecoder, int, int)}.
+   */
+  public static void parse(MessageType rootType, ProtoVisitor visitor, ProtobufDecoder decoder) {
+    parse(rootType, visitor, decoder, null);
+  }
+
+  /**
+   * Like {@link #parse(MessageType, ProtoVisitor, ProtobufDecoder)}, the message is parsed with {@code limits}.
+   */
+  public static void parse(MessageType rootType, ProtoVisitor visitor, ProtobufDecoder decoder, ReaderLimits limits) {
+    ProtobufReader reader = acquire(limits);
+    try {
+      visitor.init(rootType);
+      reader.parse(decoder, rootType, visitor);
+      visitor.destroy();
+    } finally {
+      reader.release();
+    }
+  }
+
+  /**
+   * Decode and visit fields in {@link UnknownFieldMode#VISIT} mode, see
+   * {@link ProtoVisitor#visitUnknownRaw(MessageType, ProtobufDecoder, int, int)}.
+   */
+  static void visitUnknown(MessageType type, ProtobufDecoder decoder, ProtoVisitor visitor) {
+    parseNested(decoder, type, visitor, UnknownFieldMode.VISIT);
+  }
+
+  /**
+   * Parse an embedded message, see {@link ProtoVisitor#visitEmbeddedRaw(Field, ProtobufDecoder, int, int)}.
+   */
+  static void parseEmbedded(ProtobufDecoder decoder, MessageType type, ProtoVisitor visitor) {
+    parseNested(decoder, type, visitor, visitor.unknownFieldMode());
+  }
+
+  /**
+   * Parse on behalf of a visitor called back by a reader. The message is parsed with the limits of the calling
+   * reader, at the depth of the message, and its allocations are accounted to the calling reader.
+   */
+  private static void parseNested(ProtobufDecoder decoder, MessageType type, ProtoVisitor visitor, UnknownFieldMode unknownFieldMode) {
+    ProtobufReader caller = CALLER.get();
+    ProtobufReader reader = acquire();
+    try {
+      if (caller != null) {
+        int maxDepth = caller.maxDepth - caller.callbackDepth;
+        if (maxDepth < 0) {
+          throw new DecodeException("Message nesting exceeds the maximum depth of " + caller.maxDepth);
+        }
+        reader.maxDepth = maxDepth;
+        reader.maxFieldLength = caller.maxFieldLength;
+        reader.maxAllocatedBytes = caller.maxAllocatedBytes;
+        reader.allocatedBytes = caller.allocatedBytes;
+      } else {
+        reader.allocatedBytes = 0;
+      }
+      reader.unknownFieldMode = unknownFieldMode;
+      reader.utf8Strings = visitor.utf8Strings();
+      int base = reader.sp;
+      try {
+        reader.parse(decoder, TagTable.of(type), visitor, null, base);
+      } finally {
+        reader.sp = base;
+      }
+      if (caller != null) {
+        caller.allocatedBytes = reader.allocatedBytes;
+      }
+    } finally {
+      reader.release();
+    }
+  }
+
+  private static final ThreadLocal<ProtobufReader> CURRENT = ThreadLocal.withInitial(ProtobufReader::new);
+  // The reader calling back a visitor on the current thread, parses started by the visitor inherit its limits
+  private static final ThreadLocal<ProtobufReader> CALLER = new ThreadLocal<>();
+
+  // Larger packed arrays are not kept by the reader of a thread
+  private static final int MAX_RETAINED_LENGTH = 1024;
+  private static final byte[] EMPTY = new byte[0];
+
+  /**
+   * @return the reader of the current thread configured with {@code limits}, or the default limits when
+   * {@code limits} is {@code null}
+   */
+  static ProtobufReader acquire(ReaderLimits limits) {
+    ProtobufReader reader = acquire();
+    if (limits != null) {
+      reader.limits(limits);
+    }
+    return reader;
+  }
+
+  /**
+   * @return the reader of the current thread or a new reader when it is already parsing, e.g. when a visitor
+   * parses a message
+   */
+  static ProtobufReader acquire() {
+    ProtobufReader reader = CURRENT.get();
+    if (reader.busy) {
+      return new ProtobufReader();
+    }
+    reader.busy = true;
+    return reader;
+  }
+
+  void release() {
+    busy = false;
+    maxDepth = DEFAULT_MAX_DEPTH;
+    maxMessageSize = Integer.MAX_VALUE;
+    maxFieldLength = Integer.MAX_VALUE;
+    maxAllocatedBytes = Long.MAX_VALUE;
+    if (decoder != null) {
+      decoder.reset(EMPTY, 0, 0);
+    }
+    if (ints != null && ints.length > MAX_RETAINED_LENGTH) {
+      ints = null;
+    }
+    if (longs != null && longs.length > MAX_RETAINED_LENGTH) {
+      longs = null;
+    }
+    if (floats != null && floats.length > MAX_RETAINED_LENGTH) {
+      floats = null;
+    }
+    if (doubles != null && doubles.length > MAX_RETAINED_LENGTH) {
+      doubles = null;
+    }
+    if (booleans != null && booleans.length > MAX_RETAINED_LENGTH) {
+      booleans = null;
+    }
+  }
+
+  private boolean busy;
+  private DefaultProtobufDecoder decoder;
+
+  /**
+   * Parse the {@code length} bytes of {@code buffer} starting at {@code offset}.
+   *
+   * <p>A reader can be reused for any number of messages, e.g. kept per thread or per Vert.x context, parsing a
+   * message then does not allocate a reader nor a decoder. A reader is not thread safe and cannot parse a message
+   * while it is already parsing one.</p>
+   */
+  public void read(MessageType rootType, ProtoVisitor visitor, byte[] buffer, int offset, int length) {
+    read(rootType, visitor, buffer, offset, length, null);
+  }
+
+  private void read(MessageType rootType, ProtoVisitor visitor, byte[] buffer, int offset, int length, FieldProjection projection) {
+    DefaultProtobufDecoder d = decoder;
+    if (d == null) {
+      d = new DefaultProtobufDecoder(buffer, offset, length);
+      decoder = d;
+    } else {
+      d.reset(buffer, offset, length);
+    }
+    visitor.init(rootType);
+    if (projection == null) {
+      parse(d, rootType, visitor);
     } else {
-      ScalarType builtInType = (ScalarType) field.type();
-      switch (builtInType.id()) {
-        case STRING:
-          String s = decoder.readString(len);
-//          visitor.enter(field);
-          visitor.visitString(field, s);
-//          visitor.leave(field);
+      parse(d, rootType, visitor, projection);
+    }
+    visitor.destroy();
+  }
+
+  /**
+   * The default maximum nesting of embedded messages, the same as the recursion limit of the protobuf Java runtime.
+   */
+  public static final int DEFAULT_MAX_DEPTH = 100;
+
+  private UnknownFieldMode unknownFieldMode = UnknownFieldMode.VISIT;
+  private boolean utf8Strings;
+  private int maxDepth = DEFAULT_MAX_DEPTH;
+  private int maxMessageSize = Integer.MAX_VALUE;
+  private int maxFieldLength = Integer.MAX_VALUE;
+  private long maxAllocatedBytes = Long.MAX_VALUE;
+  // Nesting depth of the message handed to a visitor callback
+  private int callbackDepth;
+  // Bytes allocated by the current parse
+  private long allocatedBytes;
+
+  // Stack of the enclosing messages of the message being parsed
+  private int sp;
+  private int[] ends = new int[16];
+  private TagTable.Entry[] entries = new TagTable.Entry[16];
+  private TagTable[] tables = new TagTable[16];
+  private FieldProjection[] projections = new FieldProjection[16];
+
+  /**
+   * @return the maximum nesting of embedded messages
+   */
+  public int maxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Set the maximum nesting of embedded messages, a message nested deeper is rejected with a {@link DecodeException}.
+   *
+   * @return this reader
+   */
+  public ProtobufReader maxDepth(int maxDepth) {
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException("Invalid max depth: " + maxDepth);
+    }
+    this.maxDepth = maxDepth;
+    return this;
+  }
+
+  /**
+   * @return the maximum size in bytes of a parsed message
+   */
+  public int maxMessageSize() {
+    return maxMessageSize;
+  }
+
+  /**
+   * Set the maximum size in bytes of a parsed message, a larger message is rejected with a {@link DecodeException}
+   * before any field is decoded. There is no limit by default.
+   *
+   * @return this reader
+   */
+  public ProtobufReader maxMessageSize(int maxMessageSize) {
+    if (maxMessageSize < 0) {
+      throw new IllegalArgumentException("Invalid max message size: " + maxMessageSize);
+    }
+    this.maxMessageSize = maxMessageSize;
+    return this;
+  }
+
+  /**
+   * @return the maximum length in bytes of a decoded length-delimited field
+   */
+  public int maxFieldLength() {
+    return maxFieldLength;
+  }
+
+  /**
+   * Set the maximum length in bytes of a decoded length-delimited field, i.e. a string, bytes, embedded message or
+   * packed field. A longer field is rejected with a {@link DecodeException} before its value is decoded, skipped
+   * fields are not checked. There is no limit by default.
+   *
+   * @return this reader
+   */
+  public ProtobufReader maxFieldLength(int maxFieldLength) {
+    if (maxFieldLength < 0) {
+      throw new IllegalArgumentException("Invalid max field length: " + maxFieldLength);
+    }
+    this.maxFieldLength = maxFieldLength;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of bytes allocated by the reader when parsing a message
+   */
+  public long maxAllocatedBytes() {
+    return maxAllocatedBytes;
+  }
+
+  /**
+   * Set the maximum number of bytes allocated by the reader when parsing a message. Strings, byte arrays and packed
+   * value arrays are accounted before being allocated, a parse exceeding the quota is rejected with a
+   * {@link DecodeException}. Allocations performed by the visitor are not accounted. There is no limit by default.
+   *
+   * @return this reader
+   */
+  public ProtobufReader maxAllocatedBytes(long maxAllocatedBytes) {
+    if (maxAllocatedBytes < 0) {
+      throw new IllegalArgumentException("Invalid max allocated bytes: " + maxAllocatedBytes);
+    }
+    this.maxAllocatedBytes = maxAllocatedBytes;
+    return this;
+  }
+
+  /**
+   * Set all the limits of this reader from {@code limits}.
+   *
+   * @return this reader
+   */
+  public ProtobufReader limits(ReaderLimits limits) {
+    maxDepth = limits.maxDepth();
+    maxMessageSize = limits.maxMessageSize();
+    maxFieldLength = limits.maxFieldLength();
+    maxAllocatedBytes = limits.maxAllocatedBytes();
+    return this;
+  }
+
+  /**
+   * @return the bytes allocated by the last parse
+   */
+  long allocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /**
+   * Read the length of a decoded length-delimited field and check it against the readable bytes and the limits.
+   */
+  private int readFieldLength(ProtobufDecoder decoder) {
+    int len = decoder.decodeVarInt32();
+    if (len < 0 || len > decoder.len() - decoder.index()) {
+      throw new DecodeException();
+    }
+    if (len > maxFieldLength) {
+      throw new DecodeException("Field length " + len + " exceeds the maximum length of " + maxFieldLength);
+    }
+    return len;
+  }
+
+  /**
+   * Account {@code bytes} about to be allocated.
+   */
+  private void allocate(long bytes) {
+    long allocated = allocatedBytes + bytes;
+    if (allocated > maxAllocatedBytes) {
+      throw new DecodeException("Allocations exceed the maximum of " + maxAllocatedBytes + " bytes");
+    }
+    allocatedBytes = allocated;
+  }
+
+  public void parse(ProtobufDecoder decoder, MessageType type, ProtoVisitor visitor) {
+    unknownFieldMode = visitor.unknownFieldMode();
+    utf8Strings = visitor.utf8Strings();
+    parse(decoder, TagTable.of(type), visitor, null);
+  }
+
+  /**
+   * Parse only the fields of a projection of {@code type}, other fields are skipped without being decoded.
+   */
+  public void parse(ProtobufDecoder decoder, MessageType type, ProtoVisitor visitor, FieldProjection projection) {
+    unknownFieldMode = visitor.unknownFieldMode();
+    utf8Strings = visitor.utf8Strings();
+    parse(decoder, TagTable.of(type), visitor, projection == FieldProjection.ALL ? null : projection);
+  }
+
+  /**
+   * @param projection the projection of the message or {@code null} to parse all fields
+   */
+  private void parse(ProtobufDecoder decoder, TagTable table, ProtoVisitor visitor, FieldProjection projection) {
+    // Embedded messages are parsed iteratively, the state of the enclosing messages is pushed on the stack
+    int base = sp;
+    if (base == 0) {
+      int size = decoder.len() - decoder.index();
+      if (size > maxMessageSize) {
+        throw new DecodeException("Message size " + size + " exceeds the maximum size of " + maxMessageSize);
+      }
+      allocatedBytes = 0;
+    }
+    try {
+      parse(decoder, table, visitor, projection, base);
+    } finally {
+      sp = base;
+    }
+  }
+
+  private void parse(ProtobufDecoder decoder, TagTable table, ProtoVisitor visitor, FieldProjection projection, int base) {
+    // Start of the current run of preserved unknown fields
+    int unknownFrom = -1;
+    // Entry of the previous field of the current message, it predicts the next field
+    TagTable.Entry prev = null;
+    while (true) {
+      if (!decoder.isReadable()) {
+        if (unknownFrom >= 0) {
+          visitUnknownRaw(visitor, table.type, decoder, unknownFrom, decoder.index() - unknownFrom, sp - base);
+          unknownFrom = -1;
+        }
+        if (sp == base) {
+          break;
+        }
+        int top = --sp;
+        table = tables[top];
+        projection = projections[top];
+        decoder.len(ends[top]);
+        prev = entries[top];
+        visitor.leave(prev.field);
+        continue;
+      }
+      int start = decoder.index();
+      int tag = decoder.decodeVarInt32();
+      TagTable.Entry entry = table.next(prev, tag);
+      prev = entry;
+      Field field = entry.field;
+      if (entry.unknown && projection == null && unknownFieldMode != UnknownFieldMode.VISIT) {
+        skip(decoder, tag & 0b0111);
+        if (unknownFieldMode == UnknownFieldMode.PRESERVE && unknownFrom < 0) {
+          unknownFrom = start;
+        }
+        continue;
+      } else if (unknownFrom >= 0) {
+        visitUnknownRaw(visitor, table.type, decoder, unknownFrom, start - unknownFrom, sp - base);
+        unknownFrom = -1;
+      }
+      FieldProjection nested = null;
+      if (projection != null) {
+        nested = projection.child(tag >>> 3);
+        if (nested == null) {
+          skip(decoder, tag & 0b0111);
+          continue;
+        } else if (nested == FieldProjection.ALL) {
+          nested = null;
+        }
+      }
+      switch (entry.action) {
+        case TagTable.LEN_STRING: {
+          int len = readFieldLength(decoder);
+          if (utf8Strings) {
+            visitor.visitString(field, decoder.readUtf8String(len));
+          } else {
+            allocate(len);
+            visitor.visitString(field, decoder.readString(len));
+          }
           break;
-        case BYTES:
-          byte[] bytes = decoder.readBytes(len);
-//          visitor.enter(field);
-          visitor.visitBytes(field, bytes);
-//          visitor.leave(field);
+        }
+        case TagTable.LEN_BYTES:
+        case TagTable.UNKNOWN_LEN: {
+          int len = readFieldLength(decoder);
+          allocate(len);
+          visitor.visitBytes(field, decoder.readBytes(len));
           break;
-        default:
-          // Packed
+        }
+        case TagTable.LEN_MESSAGE: {
+          int len = readFieldLength(decoder);
+          int from = decoder.index();
+          if (visitor.isEmbeddedRaw(field)) {
+            decoder.index(from + len);
+            visitEmbeddedRaw(visitor, field, decoder, from, len, sp - base + 1);
+            break;
+          }
+          int top = sp;
+          if (top - base >= maxDepth) {
+            throw new DecodeException("Message nesting exceeds the maximum depth of " + maxDepth);
+          }
+          if (top == ends.length) {
+            grow();
+          }
+          ends[top] = decoder.len();
+          entries[top] = entry;
+          tables[top] = table;
+          projections[top] = projection;
+          sp = top + 1;
+          decoder.len(from + len);
+          visitor.enter(field);
+          table = entry.nested();
+          projection = nested;
+          prev = null;
+          break;
+        }
+        case TagTable.LEN_PACKED: {
+          int len = readFieldLength(decoder);
+          if (field.isPacked()) {
+            parsePacked(decoder, entry.elementAction, field, len, visitor);
+            break;
+          }
+          int to = decoder.index() + len;
+          int action = entry.elementAction;
           visitor.enterPacked(field);
-          switch (builtInType.wireType()) {
-            case VARINT:
-              parsePackedVarInt32(decoder, field, len, visitor);
-              break;
-            case I64:
-              parsePackedI64(decoder, field, len, visitor);
-              break;
-            case I32:
-              parsePackedI32(decoder, field, len, visitor);
-              break;
-            default:
-              throw new UnsupportedOperationException("" + field.type());
+          while (decoder.index() < to) {
+            parseValue(decoder, action, field, visitor);
           }
           visitor.leavePacked(field);
+          break;
+        }
+        case TagTable.UNKNOWN_VARINT:
+          visitor.visitInt64(field, decoder.decodeVarInt64());
+          break;
+        case TagTable.UNKNOWN_I32:
+          visitor.visitFixed32(field, decoder.decodeI32());
+          break;
+        case TagTable.UNKNOWN_I64:
+          visitor.visitFixed64(field, decoder.decodeI64());
+          break;
+        case TagTable.WIRE_TYPE_MISMATCH:
+          throw new DecodeException("Invalid wire type " + (entry.tag & 0b0111) + " for field " + field.number() + " of type " + field.type());
+        default:
+          parseValue(decoder, entry.action, field, visitor);
+          break;
       }
     }
   }
 
-  private void parsePackedVarInt32(ProtobufDecoder decoder, Field field, int len, ProtoVisitor visitor) {
-    int to = decoder.index() + len;
-    while (decoder.index() < to) {
-      parseVarInt(decoder, field, visitor);
+  /**
+   * Call back a visitor with the raw bytes of an embedded message at {@code depth}, a parse started by the visitor
+   * inherits the limits of this reader.
+   */
+  private void visitEmbeddedRaw(ProtoVisitor visitor, Field field, ProtobufDecoder decoder, int offset, int length, int depth) {
+    ProtobufReader caller = CALLER.get();
+    CALLER.set(this);
+    callbackDepth = depth;
+    try {
+      visitor.visitEmbeddedRaw(field, decoder, offset, length);
+    } finally {
+      CALLER.set(caller);
     }
   }
 
-  private void parsePackedI64(ProtobufDecoder decoder, Field field, int len, ProtoVisitor visitor) {
-    int to = decoder.index() + len;
-    while (decoder.index() < to) {
-      assertTrue(decoder.readI64());
-      long v = decoder.longValue();
-      dispatchI64(field, v, visitor);
+  /**
+   * Call back a visitor with the raw bytes of unknown fields of a message at {@code depth}, a parse started by the
+   * visitor inherits the limits of this reader.
+   */
+  private void visitUnknownRaw(ProtoVisitor visitor, MessageType type, ProtobufDecoder decoder, int offset, int length, int depth) {
+    ProtobufReader caller = CALLER.get();
+    CALLER.set(this);
+    callbackDepth = depth;
+    try {
+      visitor.visitUnknownRaw(type, decoder, offset, length);
+    } finally {
+      CALLER.set(caller);
     }
   }
 
-  private void parsePackedI32(ProtobufDecoder decoder, Field field, int len, ProtoVisitor visitor) {
-    int to = decoder.index() + len;
-    while (decoder.index() < to) {
-      assertTrue(decoder.readI32());
-      int v = decoder.intValue();
-      dispatchI32(field, v, visitor);
+  private void grow() {
+    int capacity = ends.length * 2;
+    ends = Arrays.copyOf(ends, capacity);
+    entries = Arrays.copyOf(entries, capacity);
+    tables = Arrays.copyOf(tables, capacity);
+    projections = Arrays.copyOf(projections, capacity);
+  }
+
+  /**
+   * Skip a value without decoding it.
+   */
+  static void skip(ProtobufDecoder decoder, int wireType) {
+    switch (wireType) {
+      case 0:
+        decoder.decodeVarInt64();
+        break;
+      case 1:
+        skipBytes(decoder, 8);
+        break;
+      case 2:
+        skipBytes(decoder, readLength(decoder));
+        break;
+      case 5:
+        skipBytes(decoder, 4);
+        break;
+      default:
+        throw new DecodeException("Invalid wire type: " + wireType);
     }
   }
 
-  public static ProtoStream readerStream(MessageType rootType, byte[] buffer) {
-    return v -> {
-      ProtobufReader reader = new ProtobufReader();
-      ProtobufDecoder decoder = new DefaultProtobufDecoder(buffer);
-      v.init(rootType);
-      reader.parse(decoder, rootType, v);
-      v.destroy();
-    };
+  private static void skipBytes(ProtobufDecoder decoder, int n) {
+    int index = decoder.index();
+    if (n < 0 || n > decoder.len() - index) {
+      throw new DecodeException();
+    }
+    decoder.index(index + n);
   }
 
-  public static void parse(MessageType rootType, ProtoVisitor visitor, byte[] buffer) {
-    ProtobufReader reader = new ProtobufReader();
-    ProtobufDecoder decoder = new DefaultProtobufDecoder(buffer);
-    visitor.init(rootType);
-    reader.parse(decoder, rootType, visitor);
-    visitor.destroy();
+  static int readLength(ProtobufDecoder decoder) {
+    return decoder.decodeVarInt32();
   }
 
-  public void parse(ProtobufDecoder decoder, MessageType type, ProtoVisitor visitor) {
-    while (decoder.isReadable()) {
-      assertTrue(decoder.readTag());
-      int fieldNumber  = decoder.fieldNumber();
-      if (fieldNumber == 0) {
-        throw new DecodeException();
-      }
-      int decodedWireType = decoder.wireType();
-      Field field = type.field(fieldNumber);
-      WireType wireType = wireTypes[decodedWireType];
-      if (wireType == null) {
-        throw new DecodeException("Invalid wire type: " + decodedWireType);
-      }
-      if (field == null) {
-        switch (wireType) {
-          case LEN:
-            parseUnknownLen(decoder, type, fieldNumber, visitor);
+  // Reused by packed fields, grown on demand
+  private int[] ints;
+  private long[] longs;
+  private float[] floats;
+  private double[] doubles;
+  private boolean[] booleans;
+
+  private int[] intArray(int n) {
+    int[] values = ints;
+    if (values == null || values.length < n) {
+      allocate(4L * n);
+      values = ints = new int[n];
+    }
+    return values;
+  }
+
+  private long[] longArray(int n) {
+    long[] values = longs;
+    if (values == null || values.length < n) {
+      allocate(8L * n);
+      values = longs = new long[n];
+    }
+    return values;
+  }
+
+  private float[] floatArray(int n) {
+    float[] values = floats;
+    if (values == null || values.length < n) {
+      allocate(4L * n);
+      values = floats = new float[n];
+    }
+    return values;
+  }
+
+  private double[] doubleArray(int n) {
+    double[] values = doubles;
+    if (values == null || values.length < n) {
+      allocate(8L * n);
+      values = doubles = new double[n];
+    }
+    return values;
+  }
+
+  private boolean[] booleanArray(int n) {
+    boolean[] values = booleans;
+    if (values == null || values.length < n) {
+      allocate(n);
+      values = booleans = new boolean[n];
+    }
+    return values;
+  }
+
+  /**
+   * Decode all the values of a packed field to an array and visit them with a single bulk callback.
+   */
+  private void parsePacked(ProtobufDecoder decoder, int action, Field field, int len, ProtoVisitor visitor) {
+    int to = decoder.index() + len;
+    int n = 0;
+    switch (action) {
+      case TagTable.VARINT_INT32:
+      case TagTable.VARINT_UINT32:
+      case TagTable.VARINT_SINT32:
+      case TagTable.VARINT_ENUM: {
+        // A varint is at least one byte long
+        int[] values = intArray(len);
+        while (decoder.index() < to) {
+          values[n++] = decoder.decodeVarInt32();
+        }
+        assertTrue(decoder.index() == to);
+        switch (action) {
+          case TagTable.VARINT_INT32:
+            visitor.visitPackedInt32(field, values, 0, n);
             break;
-          case I32:
-            parseUnknownI32(decoder, type, fieldNumber, visitor);
+          case TagTable.VARINT_UINT32:
+            visitor.visitPackedUInt32(field, values, 0, n);
+            break;
+          case TagTable.VARINT_SINT32:
+            for (int i = 0;i < n;i++) {
+              values[i] = decodeSInt32(values[i]);
+            }
+            visitor.visitPackedSInt32(field, values, 0, n);
+            break;
+          default:
+            visitor.visitPackedEnum(field, values, 0, n);
             break;
-          case I64:
-            parseUnknownI64(decoder, type, fieldNumber, visitor);
+        }
+        break;
+      }
+      case TagTable.VARINT_INT64:
+      case TagTable.VARINT_UINT64:
+      case TagTable.VARINT_SINT64: {
+        long[] values = longArray(len);
+        while (decoder.index() < to) {
+          values[n++] = decoder.decodeVarInt64();
+        }
+        assertTrue(decoder.index() == to);
+        switch (action) {
+          case TagTable.VARINT_INT64:
+            visitor.visitPackedInt64(field, values, 0, n);
             break;
-          case VARINT:
-            parseUnknownVarInt(decoder, type, fieldNumber, visitor);
+          case TagTable.VARINT_UINT64:
+            visitor.visitPackedUInt64(field, values, 0, n);
             break;
           default:
-            throw new UnsupportedOperationException("Todo");
+            for (int i = 0;i < n;i++) {
+              values[i] = decodeSInt64(values[i]);
+            }
+            visitor.visitPackedSInt64(field, values, 0, n);
+            break;
         }
-      } else {
-        foo(decoder, wireType, field, visitor);
+        break;
       }
+      case TagTable.VARINT_BOOL: {
+        boolean[] values = booleanArray(len);
+        while (decoder.index() < to) {
+          values[n++] = decoder.decodeVarInt64() != 0;
+        }
+        assertTrue(decoder.index() == to);
+        visitor.visitPackedBool(field, values, 0, n);
+        break;
+      }
+      case TagTable.I32_FIXED32:
+      case TagTable.I32_SFIXED32: {
+        assertTrue((len & 3) == 0);
+        n = len >> 2;
+        int[] values = intArray(n);
+        for (int i = 0;i < n;i++) {
+          values[i] = decoder.decodeI32();
+        }
+        if (action == TagTable.I32_FIXED32) {
+          visitor.visitPackedFixed32(field, values, 0, n);
+        } else {
+          visitor.visitPackedSFixed32(field, values, 0, n);
+        }
+        break;
+      }
+      case TagTable.I32_FLOAT: {
+        assertTrue((len & 3) == 0);
+        n = len >> 2;
+        float[] values = floatArray(n);
+        for (int i = 0;i < n;i++) {
+          values[i] = Float.intBitsToFloat(decoder.decodeI32());
+        }
+        visitor.visitPackedFloat(field, values, 0, n);
+        break;
+      }
+      case TagTable.I64_FIXED64:
+      case TagTable.I64_SFIXED64: {
+        assertTrue((len & 7) == 0);
+        n = len >> 3;
+        long[] values = longArray(n);
+        for (int i = 0;i < n;i++) {
+          values[i] = decoder.decodeI64();
+        }
+        if (action == TagTable.I64_FIXED64) {
+          visitor.visitPackedFixed64(field, values, 0, n);
+        } else {
+          visitor.visitPackedSFixed64(field, values, 0, n);
+        }
+        break;
+      }
+      case TagTable.I64_DOUBLE: {
+        assertTrue((len & 7) == 0);
+        n = len >> 3;
+        double[] values = doubleArray(n);
+        for (int i = 0;i < n;i++) {
+          values[i] = Double.longBitsToDouble(decoder.decodeI64());
+        }
+        visitor.visitPackedDouble(field, values, 0, n);
+        break;
+      }
+      default:
+        throw new AssertionError();
     }
   }
 
-  private void foo(ProtobufDecoder decoder, WireType wireType, Field field, ProtoVisitor visitor) {
-    switch (wireType) {
-      case LEN:
-        parseLen(decoder, field, visitor);
+  /**
+   * Parse a single varint, i32 or i64 value.
+   */
+  private static void parseValue(ProtobufDecoder decoder, int action, Field field, ProtoVisitor visitor) {
+    switch (action) {
+      case TagTable.VARINT_INT32:
+        visitor.visitInt32(field, decoder.decodeVarInt32());
+        break;
+      case TagTable.VARINT_UINT32:
+        visitor.visitUInt32(field, decoder.decodeVarInt32());
+        break;
+      case TagTable.VARINT_SINT32:
+        visitor.visitSInt32(field, decodeSInt32(decoder.decodeVarInt32()));
+        break;
+      case TagTable.VARINT_ENUM:
+        visitor.visitEnum(field, decoder.decodeVarInt32());
+        break;
+      case TagTable.VARINT_INT64:
+        visitor.visitInt64(field, decoder.decodeVarInt64());
+        break;
+      case TagTable.VARINT_UINT64:
+        visitor.visitUInt64(field, decoder.decodeVarInt64());
+        break;
+      case TagTable.VARINT_SINT64:
+        visitor.visitSInt64(field, decodeSInt64(decoder.decodeVarInt64()));
+        break;
+      case TagTable.VARINT_BOOL:
+        visitor.visitBool(field, decoder.decodeVarInt64() != 0);
+        break;
+      case TagTable.I32_FIXED32:
+        visitor.visitFixed32(field, decoder.decodeI32());
+        break;
+      case TagTable.I32_SFIXED32:
+        visitor.visitSFixed32(field, decoder.decodeI32());
+        break;
+      case TagTable.I32_FLOAT:
+        visitor.visitFloat(field, Float.intBitsToFloat(decoder.decodeI32()));
         break;
-      case I64:
-        parseI64(decoder, field, visitor);
+      case TagTable.I64_FIXED64:
+        visitor.visitFixed64(field, decoder.decodeI64());
         break;
-      case I32:
-        parseI32(decoder, field, visitor);
+      case TagTable.I64_SFIXED64:
+        visitor.visitSFixed64(field, decoder.decodeI64());
         break;
-      case VARINT:
-        parseVarInt(decoder, field, visitor);
+      case TagTable.I64_DOUBLE:
+        visitor.visitDouble(field, Double.longBitsToDouble(decoder.decodeI64()));
         break;
       default:
-        throw new UnsupportedOperationException("Implement me " + field.type().wireType());
+        throw new AssertionError();
     }
   }
 
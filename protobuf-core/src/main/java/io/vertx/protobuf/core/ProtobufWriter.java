@@ -20,8 +20,16 @@ import io.vertx.protobuf.schema.Field;
 import io.vertx.protobuf.schema.MessageType;
 import io.vertx.protobuf.schema.WireType;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
 
 import static java.lang.Character.MIN_SUPPLEMENTARY_CODE_POINT;
 
@@ -36,26 +44,237 @@ public class ProtobufWriter {
   }
 
   public static byte[] encodeToByteArray(Consumer<ProtoVisitor> consumer) {
-    State state = new State();
-    ComputePhase visitor = new ComputePhase();
-    visitor.state = state;
-    consumer.accept(visitor);
-    EncodingPhase encoder = new EncodingPhase();
-    encoder.state = state;
-    consumer.accept(encoder);
-    return encoder.encoder.buffer();
+    return encode(consumer, DefaultProtobufEncoder::new).buffer();
+  }
+
+  /**
+   * Encode the stream to {@code buffer} starting at {@code offset}.
+   *
+   * @return the number of bytes written
+   * @throws IndexOutOfBoundsException when the message does not fit in the buffer
+   */
+  public static int encode(Consumer<ProtoVisitor> consumer, byte[] buffer, int offset) {
+    if (offset < 0 || offset > buffer.length) {
+      throw new IndexOutOfBoundsException("Invalid offset: " + offset);
+    }
+    DefaultProtobufEncoder encoder = encode(consumer, size -> {
+      if (size > buffer.length - offset) {
+        throw new IndexOutOfBoundsException("Message size " + size + " exceeds the " + (buffer.length - offset) + " available bytes");
+      }
+      return new DefaultProtobufEncoder(buffer, offset);
+    });
+    return encoder.index() - offset;
+  }
+
+  /**
+   * Encode the stream to a {@link ByteBuffer}, heap or direct, starting at its position. The position is advanced by
+   * the number of bytes written.
+   *
+   * @return the number of bytes written
+   * @throws java.nio.BufferOverflowException when the message does not fit in the remaining bytes of the buffer
+   */
+  public static int encode(Consumer<ProtoVisitor> consumer, ByteBuffer buffer) {
+    int position = buffer.position();
+    ProtobufEncoder encoder = encode(consumer, size -> {
+      if (size > buffer.remaining()) {
+        throw new BufferOverflowException();
+      }
+      if (buffer.hasArray()) {
+        return new DefaultProtobufEncoder(buffer.array(), buffer.arrayOffset() + position);
+      } else {
+        return new ByteBufferProtobufEncoder(buffer);
+      }
+    });
+    int written = encoder instanceof DefaultProtobufEncoder ? encoder.index() - buffer.arrayOffset() - position : encoder.index();
+    buffer.position(position + written);
+    return written;
+  }
+
+  /**
+   * Encode the stream to an array acquired from {@code pool}, the {@code handler} is called with the array and the
+   * number of bytes written, the array is released to the pool when the handler returns.
+   *
+   * @return the number of bytes written
+   */
+  public static int encode(Consumer<ProtoVisitor> consumer, BufferPool pool, ObjIntConsumer<byte[]> handler) {
+    // The array is acquired by the factory, it is released even when the stream fails after it is acquired
+    byte[][] acquired = new byte[1][];
+    try {
+      DefaultProtobufEncoder encoder = encode(consumer, size -> {
+        byte[] buffer = pool.acquire(size);
+        acquired[0] = buffer;
+        return new DefaultProtobufEncoder(buffer, 0);
+      });
+      int length = encoder.index();
+      handler.accept(acquired[0], length);
+      return length;
+    } finally {
+      if (acquired[0] != null) {
+        pool.release(acquired[0]);
+      }
+    }
+  }
+
+  /**
+   * Encode the stream in chunks of {@code chunkSize} bytes handed to {@code sink}, {@code chunkSize} must be at least
+   * {@code 16}. The sink is called with the chunk and the number of bytes it holds, the chunk is reused once the sink
+   * returns, a sink retaining the bytes must copy them. The lengths of the embedded messages are computed first, the
+   * message is never held in memory as a whole.
+   *
+   * @return the number of bytes written
+   */
+  public static int encode(Consumer<ProtoVisitor> consumer, int chunkSize, ObjIntConsumer<byte[]> sink) {
+    if (chunkSize < ChunkedProtobufEncoder.MIN_CHUNK_SIZE) {
+      throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+    }
+    ChunkedProtobufEncoder encoder = encode(consumer, size -> new ChunkedProtobufEncoder(Math.max(ChunkedProtobufEncoder.MIN_CHUNK_SIZE, Math.min(chunkSize, size)), sink));
+    encoder.flush();
+    return encoder.index();
+  }
+
+  /**
+   * Encode the stream to an {@link OutputStream} in chunks of {@code chunkSize} bytes, the output stream is neither
+   * flushed nor closed.
+   *
+   * @return the number of bytes written
+   * @throws EncodeException when the output cannot be written
+   */
+  public static int encode(Consumer<ProtoVisitor> consumer, OutputStream out, int chunkSize) throws EncodeException {
+    return encode(consumer, chunkSize, (chunk, length) -> {
+      try {
+        out.write(chunk, 0, length);
+      } catch (IOException e) {
+        throw new EncodeException(e);
+      }
+    });
+  }
+
+  /**
+   * Encode the stream to a {@link WritableByteChannel} in chunks of {@code chunkSize} bytes.
+   *
+   * @return the number of bytes written
+   * @throws EncodeException when the output cannot be written
+   */
+  public static int encode(Consumer<ProtoVisitor> consumer, WritableByteChannel channel, int chunkSize) throws EncodeException {
+    // The encoder reuses its chunk, so does the wrapping buffer
+    ByteBuffer[] wrapper = new ByteBuffer[1];
+    return encode(consumer, chunkSize, (chunk, length) -> {
+      ByteBuffer buffer = wrapper[0];
+      if (buffer == null) {
+        buffer = ByteBuffer.wrap(chunk);
+        wrapper[0] = buffer;
+      }
+      buffer.limit(length).position(0);
+      try {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      } catch (IOException e) {
+        throw new EncodeException(e);
+      }
+    });
+  }
+
+  /**
+   * Encode the stream visiting it only once, unlike {@link #encodeToByteArray(Consumer)} which visits it a first time
+   * to compute the lengths of the embedded messages. Getters and iterators of the encoded object run once and a
+   * stream that cannot be replayed can be encoded.
+   */
+  public static byte[] encodeSinglePass(Consumer<ProtoVisitor> consumer) {
+    SinglePassWriter writer = new SinglePassWriter(256);
+    consumer.accept(writer);
+    return writer.toByteArray();
+  }
+
+  /**
+   * Encode the stream with an encoder created by {@code encoderFactory}, the factory is called with the
+   * exact size of the encoded message.
+   *
+   * @return the encoder the message was written to
+   */
+  @SuppressWarnings("unchecked")
+  public static <E extends ProtobufEncoder> E encode(Consumer<ProtoVisitor> consumer, IntFunction<E> encoderFactory) {
+    Phases phases = acquire();
+    try {
+      consumer.accept(phases.computePhase);
+      EncodingPhase encoder = phases.encodingPhase;
+      encoder.encoderFactory = encoderFactory;
+      consumer.accept(encoder);
+      return (E) encoder.encoder;
+    } finally {
+      phases.release();
+    }
+  }
+
+  // Budget in bytes of the state arrays kept by the phases of a thread, larger arrays are dropped after the encode
+  private static final int MAX_RETAINED_BYTES = 1024 * 1024;
+
+  private static final ThreadLocal<Phases> CURRENT = ThreadLocal.withInitial(Phases::new);
+
+  /**
+   * @return the phases of the current thread or new phases when they are already encoding, e.g. when a stream
+   * encodes a message
+   */
+  private static Phases acquire() {
+    Phases phases = CURRENT.get();
+    if (phases.busy) {
+      return new Phases();
+    }
+    phases.busy = true;
+    return phases;
+  }
+
+  /**
+   * The state of an encode, reused across encodes of the same thread.
+   */
+  private static final class Phases {
+
+    final State state = new State();
+    final ComputePhase computePhase = new ComputePhase();
+    final EncodingPhase encodingPhase = new EncodingPhase();
+    boolean busy;
+
+    Phases() {
+      computePhase.state = state;
+      encodingPhase.state = state;
+    }
+
+    void release() {
+      busy = false;
+      encodingPhase.encoderFactory = null;
+      encodingPhase.encoder = null;
+      encodingPhase.packed = false;
+      computePhase.packed = false;
+      state.reset();
+      computePhase.reset();
+    }
   }
 
   static class State {
-    int[] capture = new int[50];
+
+    // Lengths of the message and of its length-delimited values in visit order, grown on demand
+    int[] capture = new int[64];
+
+    void capture(int index, int length) {
+      if (index >= capture.length) {
+        capture = Arrays.copyOf(capture, Math.max(index + 1, capture.length * 2));
+      }
+      capture[index] = length;
+    }
+
+    void reset() {
+      if (capture.length > MAX_RETAINED_BYTES / Integer.BYTES) {
+        capture = new int[64];
+      }
+    }
   }
 
   static class ComputePhase implements ProtoVisitor {
 
     State state;
-    int[] numbers = new int[10];
-    int[] lengths = new int[10];
-    int[] indices = new int[10];
+    // Per nesting level, grown on demand
+    int[] lengths = new int[16];
+    int[] indices = new int[16];
     int depth;
     int ptr;
     int string_ptr;
@@ -177,11 +396,35 @@ public class ProtobufWriter {
       leaveLengthDelimited(field);
     }
 
+    @Override
+    public boolean utf8Strings() {
+      return true;
+    }
+
+    @Override
+    public void visitString(Field field, Utf8String s) {
+      enterLengthDelimited(field);
+      lengths[depth] += s.length();
+      leaveLengthDelimited(field);
+    }
+
+    @Override
+    public UnknownFieldMode unknownFieldMode() {
+      return UnknownFieldMode.PRESERVE;
+    }
+
+    @Override
+    public void visitUnknownRaw(MessageType type, ProtobufDecoder decoder, int offset, int length) {
+      lengths[depth] += length;
+    }
+
     @Override
     public void init(MessageType type) {
       string_ptr = 0;
       depth = 0;
       ptr = 0;
+      packed = false;
+      lengths[0] = 0;
       indices[0] = ptr++;
     }
 
@@ -199,12 +442,23 @@ public class ProtobufWriter {
     }
 
     private void enterLengthDelimited(Field field) {
-      numbers[depth] = field.number();
       depth++;
+      if (depth == lengths.length) {
+        lengths = Arrays.copyOf(lengths, depth * 2);
+        indices = Arrays.copyOf(indices, depth * 2);
+      }
       indices[depth] = ptr++;
       lengths[depth] = 0;
     }
 
+    void reset() {
+      // lengths and indices share the budget
+      if (lengths.length > MAX_RETAINED_BYTES / (2 * Integer.BYTES)) {
+        lengths = new int[16];
+        indices = new int[16];
+      }
+    }
+
     @Override
     public void leavePacked(Field field) {
       if (field.isPacked()) {
@@ -221,23 +475,134 @@ public class ProtobufWriter {
     private void leaveLengthDelimited(Field field) {
       int l = lengths[depth];
       lengths[depth] = 0;
-      int index = indices[depth];
-      state.capture[index] = l;
+      state.capture(indices[depth], l);
       l += sizeOf(field) + DefaultProtobufEncoder.computeRawVarint32Size(l);
       depth--;
       lengths[depth] += l;
     }
 
+    @Override
+    public void visitPackedInt32(Field field, int[] values, int from, int to) {
+      int size = 0;
+      for (int i = from;i < to;i++) {
+        size += DefaultProtobufEncoder.computeRawVarint32Size(values[i]);
+      }
+      visitPacked(field, size, to - from);
+    }
+
+    @Override
+    public void visitPackedUInt32(Field field, int[] values, int from, int to) {
+      int size = 0;
+      for (int i = from;i < to;i++) {
+        size += DefaultProtobufEncoder.computeRawVarint32Size(values[i]);
+      }
+      visitPacked(field, size, to - from);
+    }
+
+    @Override
+    public void visitPackedSInt32(Field field, int[] values, int from, int to) {
+      int size = 0;
+      for (int i = from;i < to;i++) {
+        size += DefaultProtobufEncoder.computeRawVarint32Size(encodeSInt32(values[i]));
+      }
+      visitPacked(field, size, to - from);
+    }
+
+    @Override
+    public void visitPackedEnum(Field field, int[] values, int from, int to) {
+      int size = 0;
+      for (int i = from;i < to;i++) {
+        size += DefaultProtobufEncoder.computeRawVarint64Size(values[i]);
+      }
+      visitPacked(field, size, to - from);
+    }
+
+    @Override
+    public void visitPackedInt64(Field field, long[] values, int from, int to) {
+      int size = 0;
+      for (int i = from;i < to;i++) {
+        size += DefaultProtobufEncoder.computeRawVarint64Size(values[i]);
+      }
+      visitPacked(field, size, to - from);
+    }
+
+    @Override
+    public void visitPackedUInt64(Field field, long[] values, int from, int to) {
+      int size = 0;
+      for (int i = from;i < to;i++) {
+        size += DefaultProtobufEncoder.computeRawVarint64Size(values[i]);
+      }
+      visitPacked(field, size, to - from);
+    }
+
+    @Override
+    public void visitPackedSInt64(Field field, long[] values, int from, int to) {
+      int size = 0;
+      for (int i = from;i < to;i++) {
+        size += DefaultProtobufEncoder.computeRawVarint64Size(encodeSInt64(values[i]));
+      }
+      visitPacked(field, size, to - from);
+    }
+
+    @Override
+    public void visitPackedBool(Field field, boolean[] values, int from, int to) {
+      visitPacked(field, to - from, to - from);
+    }
+
+    @Override
+    public void visitPackedDouble(Field field, double[] values, int from, int to) {
+      visitPacked(field, (to - from) * 8, to - from);
+    }
+
+    @Override
+    public void visitPackedFixed64(Field field, long[] values, int from, int to) {
+      visitPacked(field, (to - from) * 8, to - from);
+    }
+
+    @Override
+    public void visitPackedSFixed64(Field field, long[] values, int from, int to) {
+      visitPacked(field, (to - from) * 8, to - from);
+    }
+
+    @Override
+    public void visitPackedFloat(Field field, float[] values, int from, int to) {
+      visitPacked(field, (to - from) * 4, to - from);
+    }
+
+    @Override
+    public void visitPackedFixed32(Field field, int[] values, int from, int to) {
+      visitPacked(field, (to - from) * 4, to - from);
+    }
+
+    @Override
+    public void visitPackedSFixed32(Field field, int[] values, int from, int to) {
+      visitPacked(field, (to - from) * 4, to - from);
+    }
+
+    /**
+     * Account for {@code count} values encoded with {@code size} bytes, tags excluded.
+     */
+    private void visitPacked(Field field, int size, int count) {
+      if (field.isPacked()) {
+        enterLengthDelimited(field);
+        lengths[depth] += size;
+        leaveLengthDelimited(field);
+      } else {
+        lengths[depth] += size + count * sizeOf(field);
+      }
+    }
+
     @Override
     public void destroy() {
       int l = lengths[depth];
-      state.capture[indices[depth]] = l;
+      state.capture(indices[depth], l);
     }
   }
 
   static class EncodingPhase implements ProtoVisitor {
 
     State state;
+    IntFunction<? extends ProtobufEncoder> encoderFactory;
     ProtobufEncoder encoder;
     int ptr_;
     boolean packed;
@@ -246,8 +611,10 @@ public class ProtobufWriter {
     @Override
     public void init(MessageType type) {
       ptr_ = 0;
+      // A previous encode might have failed within a packed field
+      packed = false;
       int size = state.capture[ptr_++];
-      encoder = new DefaultProtobufEncoder(size);
+      encoder = encoderFactory.apply(size);
     }
 
     @Override
@@ -362,6 +729,28 @@ public class ProtobufWriter {
       leaveLengthDelimited(field);
     }
 
+    @Override
+    public boolean utf8Strings() {
+      return true;
+    }
+
+    @Override
+    public void visitString(Field field, Utf8String s) {
+      enterLengthDelimited(field);
+      encoder.writeUtf8String(s);
+      leaveLengthDelimited(field);
+    }
+
+    @Override
+    public UnknownFieldMode unknownFieldMode() {
+      return UnknownFieldMode.PRESERVE;
+    }
+
+    @Override
+    public void visitUnknownRaw(MessageType type, ProtobufDecoder decoder, int offset, int length) {
+      encoder.writeRaw(decoder, offset, length);
+    }
+
     @Override
     public void enterPacked(Field field) {
       if (field.isPacked()) {
@@ -396,6 +785,132 @@ public class ProtobufWriter {
     private void leaveLengthDelimited(Field field) {
     }
 
+    @Override
+    public void visitPackedInt32(Field field, int[] values, int from, int to) {
+      enterPacked(field);
+      for (int i = from;i < to;i++) {
+        visitVarInt32(field, values[i]);
+      }
+      leavePacked(field);
+    }
+
+    @Override
+    public void visitPackedUInt32(Field field, int[] values, int from, int to) {
+      enterPacked(field);
+      for (int i = from;i < to;i++) {
+        visitVarInt32(field, values[i]);
+      }
+      leavePacked(field);
+    }
+
+    @Override
+    public void visitPackedSInt32(Field field, int[] values, int from, int to) {
+      enterPacked(field);
+      for (int i = from;i < to;i++) {
+        visitVarInt32(field, encodeSInt32(values[i]));
+      }
+      leavePacked(field);
+    }
+
+    @Override
+    public void visitPackedEnum(Field field, int[] values, int from, int to) {
+      enterPacked(field);
+      for (int i = from;i < to;i++) {
+        visitVarInt64(field, values[i]);
+      }
+      leavePacked(field);
+    }
+
+    @Override
+    public void visitPackedInt64(Field field, long[] values, int from, int to) {
+      enterPacked(field);
+      for (int i = from;i < to;i++) {
+        visitVarInt64(field, values[i]);
+      }
+      leavePacked(field);
+    }
+
+    @Override
+    public void visitPackedUInt64(Field field, long[] values, int from, int to) {
+      enterPacked(field);
+      for (int i = from;i < to;i++) {
+        visitVarInt64(field, values[i]);
+      }
+      leavePacked(field);
+    }
+
+    @Override
+    public void visitPackedSInt64(Field field, long[] values, int from, int to) {
+      enterPacked(field);
+      for (int i = from;i < to;i++) {
+        visitVarInt64(field, encodeSInt64(values[i]));
+      }
+      leavePacked(field);
+    }
+
+    @Override
+    public void visitPackedBool(Field field, boolean[] values, int from, int to) {
+      enterPacked(field);
+      for (int i = from;i < to;i++) {
+        visitVarInt64(field, values[i] ? 1 : 0);
+      }
+      leavePacked(field);
+    }
+
+    @Override
+    public void visitPackedDouble(Field field, double[] values, int from, int to) {
+      enterPacked(field);
+      for (int i = from;i < to;i++) {
+        visitI64(field, Double.doubleToRawLongBits(values[i]));
+      }
+      leavePacked(field);
+    }
+
+    @Override
+    public void visitPackedFixed64(Field field, long[] values, int from, int to) {
+      enterPacked(field);
+      for (int i = from;i < to;i++) {
+        visitI64(field, values[i]);
+      }
+      leavePacked(field);
+    }
+
+    @Override
+    public void visitPackedSFixed64(Field field, long[] values, int from, int to) {
+      enterPacked(field);
+      for (int i = from;i < to;i++) {
+        visitI64(field, values[i]);
+      }
+      leavePacked(field);
+    }
+
+    @Override
+    public void visitPackedFloat(Field field, float[] values, int from, int to) {
+      enterPacked(field);
+      for (int i = from;i < to;i++) {
+        visitI32(field, Float.floatToRawIntBits(values[i]));
+      }
+      leavePacked(field);
+    }
+
+    @Override
+    public void visitPackedFixed32(Field field, int[] values, int from, int to) {
+      enterPacked(field);
+      for (int i = from;i < to;i++) {
+        visitI32(field, values[i]);
+      }
+      leavePacked(field);
+    }
+
+    @Override
+    public void visitPackedSFixed32(Field field, int[] values, int from, int to) {
+      enterPacked(field);
+      for (int i = from;i < to;i++) {
+        visitI32(field, values[i]);
+      }
+      leavePacked(field);
+    }
+
     @Override
     public void destroy() {
     }
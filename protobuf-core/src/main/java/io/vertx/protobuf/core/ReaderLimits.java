@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+/**
+ * The limits applied when parsing untrusted input with the static parse methods, e.g.
+ * {@link ProtobufReader#parse(io.vertx.protobuf.schema.MessageType, ProtoVisitor, byte[], ReaderLimits)}, see the
+ * limits of {@link ProtobufReader} for their meaning. A limits object is only read by the parse methods, it can be
+ * shared by threads once configured.
+ */
+public class ReaderLimits {
+
+  private int maxDepth = ProtobufReader.DEFAULT_MAX_DEPTH;
+  private int maxMessageSize = Integer.MAX_VALUE;
+  private int maxFieldLength = Integer.MAX_VALUE;
+  private long maxAllocatedBytes = Long.MAX_VALUE;
+
+  /**
+   * @return the maximum nesting of embedded messages
+   */
+  public int maxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * See {@link ProtobufReader#maxDepth(int)}.
+   *
+   * @return these limits
+   */
+  public ReaderLimits maxDepth(int maxDepth) {
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException("Invalid max depth: " + maxDepth);
+    }
+    this.maxDepth = maxDepth;
+    return this;
+  }
+
+  /**
+   * @return the maximum size in bytes of a parsed message
+   */
+  public int maxMessageSize() {
+    return maxMessageSize;
+  }
+
+  /**
+   * See {@link ProtobufReader#maxMessageSize(int)}.
+   *
+   * @return these limits
+   */
+  public ReaderLimits maxMessageSize(int maxMessageSize) {
+    if (maxMessageSize < 0) {
+      throw new IllegalArgumentException("Invalid max message size: " + maxMessageSize);
+    }
+    this.maxMessageSize = maxMessageSize;
+    return this;
+  }
+
+  /**
+   * @return the maximum length in bytes of a decoded length-delimited field
+   */
+  public int maxFieldLength() {
+    return maxFieldLength;
+  }
+
+  /**
+   * See {@link ProtobufReader#maxFieldLength(int)}.
+   *
+   * @return these limits
+   */
+  public ReaderLimits maxFieldLength(int maxFieldLength) {
+    if (maxFieldLength < 0) {
+      throw new IllegalArgumentException("Invalid max field length: " + maxFieldLength);
+    }
+    this.maxFieldLength = maxFieldLength;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of bytes allocated when parsing a message
+   */
+  public long maxAllocatedBytes() {
+    return maxAllocatedBytes;
+  }
+
+  /**
+   * See {@link ProtobufReader#maxAllocatedBytes(long)}.
+   *
+   * @return these limits
+   */
+  public ReaderLimits maxAllocatedBytes(long maxAllocatedBytes) {
+    if (maxAllocatedBytes < 0) {
+      throw new IllegalArgumentException("Invalid max allocated bytes: " + maxAllocatedBytes);
+    }
+    this.maxAllocatedBytes = maxAllocatedBytes;
+    return this;
+  }
+}
@@ -0,0 +1,501 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+import io.vertx.protobuf.schema.Field;
+import io.vertx.protobuf.schema.MessageType;
+import io.vertx.protobuf.schema.WireType;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static io.vertx.protobuf.core.ProtobufWriter.encodeSInt32;
+import static io.vertx.protobuf.core.ProtobufWriter.encodeSInt64;
+
+/**
+ * Encode a stream visiting it once, see {@link ProtobufWriter#encodeSinglePass(java.util.function.Consumer)}.
+ *
+ * <p>The length of an embedded message is unknown until the message is left, the writer reserves the 5 bytes of the
+ * largest length prefix when entering it and writes the actual prefix when leaving it. The unused bytes of each slot
+ * are recorded as a gap, gaps are removed by a single compaction of the buffer when the stream is done.</p>
+ */
+final class SinglePassWriter implements ProtoVisitor {
+
+  private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  // Size of a reserved length prefix
+  private static final int SLOT_SIZE = 5;
+
+  private byte[] buffer;
+  private int index;
+  private boolean packed;
+
+  // Gaps ordered by position, a gap is recorded when its slot is reserved and sized when the slot is written
+  private int[] gapPositions = new int[16];
+  private int[] gapLengths = new int[16];
+  private int gaps;
+  private int gapBytes;
+
+  // Stack of the open length-delimited fields: the gap index of their slot and the gap bytes before their content
+  private int[] slots = new int[16];
+  private int[] gapBytesAtEnter = new int[16];
+  private int depth;
+
+  SinglePassWriter(int initialCapacity) {
+    this.buffer = new byte[Math.max(16, initialCapacity)];
+  }
+
+  /**
+   * @return the encoded message, the buffer is compacted and copied to an array of the exact size
+   */
+  byte[] toByteArray() {
+    return Arrays.copyOf(buffer, compact());
+  }
+
+  /**
+   * Remove the gaps from the buffer.
+   *
+   * @return the size of the encoded message
+   */
+  private int compact() {
+    if (gapBytes == 0) {
+      return index;
+    }
+    int to = gapPositions[0];
+    for (int i = 0;i < gaps;i++) {
+      int from = gapPositions[i] + gapLengths[i];
+      int end = i + 1 < gaps ? gapPositions[i + 1] : index;
+      System.arraycopy(buffer, from, buffer, to, end - from);
+      to += end - from;
+    }
+    index = to;
+    gaps = 0;
+    gapBytes = 0;
+    return to;
+  }
+
+  private void ensure(int n) {
+    if (buffer.length - index < n) {
+      int capacity = buffer.length;
+      do {
+        capacity <<= 1;
+        if (capacity < 0) {
+          throw new EncodeException("Message too large");
+        }
+      } while (capacity - index < n);
+      buffer = Arrays.copyOf(buffer, capacity);
+    }
+  }
+
+  private void writeTag(Field field, WireType wireType) {
+    writeVarInt32(field.number() << 3 | wireType.id);
+  }
+
+  private void writeVarInt32(int v) {
+    ensure(SLOT_SIZE);
+    byte[] b = buffer;
+    int i = index;
+    while ((v & ~0x7F) != 0) {
+      b[i++] = (byte) ((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    b[i++] = (byte) v;
+    index = i;
+  }
+
+  private void writeVarInt64(long v) {
+    ensure(10);
+    index = DefaultProtobufEncoder.encodeVarInt64(buffer, index, v);
+  }
+
+  private void writeI32(int v) {
+    ensure(4);
+    INT_LE.set(buffer, index, v);
+    index += 4;
+  }
+
+  private void writeI64(long v) {
+    ensure(8);
+    LONG_LE.set(buffer, index, v);
+    index += 8;
+  }
+
+  private void writeBytes(byte[] bytes, int offset, int length) {
+    ensure(length);
+    System.arraycopy(bytes, offset, buffer, index, length);
+    index += length;
+  }
+
+  /**
+   * Write the tag and the length prefix of a field whose length is known.
+   */
+  private void writeLengthDelimited(Field field, int length) {
+    writeTag(field, WireType.LEN);
+    writeVarInt32(length);
+  }
+
+  private void enterLengthDelimited(Field field) {
+    writeTag(field, WireType.LEN);
+    ensure(SLOT_SIZE);
+    if (gaps == gapPositions.length) {
+      gapPositions = Arrays.copyOf(gapPositions, gaps * 2);
+      gapLengths = Arrays.copyOf(gapLengths, gaps * 2);
+    }
+    if (depth == slots.length) {
+      slots = Arrays.copyOf(slots, depth * 2);
+      gapBytesAtEnter = Arrays.copyOf(gapBytesAtEnter, depth * 2);
+    }
+    gapPositions[gaps] = index;
+    slots[depth] = gaps++;
+    gapBytesAtEnter[depth++] = gapBytes;
+    index += SLOT_SIZE;
+  }
+
+  private void leaveLengthDelimited() {
+    int gap = slots[--depth];
+    int slot = gapPositions[gap];
+    // Gaps of the nested fields are not part of the encoded length
+    int length = index - slot - SLOT_SIZE - (gapBytes - gapBytesAtEnter[depth]);
+    int i = slot;
+    int v = length;
+    byte[] b = buffer;
+    while ((v & ~0x7F) != 0) {
+      b[i++] = (byte) ((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    b[i++] = (byte) v;
+    int unused = slot + SLOT_SIZE - i;
+    gapPositions[gap] = i;
+    gapLengths[gap] = unused;
+    gapBytes += unused;
+  }
+
+  @Override
+  public void init(MessageType type) {
+    index = 0;
+    packed = false;
+    gaps = 0;
+    gapBytes = 0;
+    depth = 0;
+  }
+
+  @Override
+  public void destroy() {
+  }
+
+  @Override
+  public void enter(Field field) {
+    enterLengthDelimited(field);
+  }
+
+  @Override
+  public void leave(Field field) {
+    leaveLengthDelimited();
+  }
+
+  @Override
+  public void enterPacked(Field field) {
+    if (field.isPacked()) {
+      packed = true;
+      enterLengthDelimited(field);
+    }
+  }
+
+  @Override
+  public void leavePacked(Field field) {
+    if (field.isPacked()) {
+      packed = false;
+      leaveLengthDelimited();
+    }
+  }
+
+  @Override
+  public void visitInt32(Field field, int v) {
+    visitVarInt32(field, v);
+  }
+
+  @Override
+  public void visitUInt32(Field field, int v) {
+    visitVarInt32(field, v);
+  }
+
+  @Override
+  public void visitSInt32(Field field, int v) {
+    visitVarInt32(field, encodeSInt32(v));
+  }
+
+  @Override
+  public void visitEnum(Field field, int number) {
+    visitVarInt64(field, number);
+  }
+
+  private void visitVarInt32(Field field, int v) {
+    if (!packed) {
+      writeTag(field, WireType.VARINT);
+    }
+    writeVarInt32(v);
+  }
+
+  @Override
+  public void visitInt64(Field field, long v) {
+    visitVarInt64(field, v);
+  }
+
+  @Override
+  public void visitUInt64(Field field, long v) {
+    visitVarInt64(field, v);
+  }
+
+  @Override
+  public void visitSInt64(Field field, long v) {
+    visitVarInt64(field, encodeSInt64(v));
+  }
+
+  @Override
+  public void visitBool(Field field, boolean v) {
+    visitVarInt64(field, v ? 1 : 0);
+  }
+
+  private void visitVarInt64(Field field, long v) {
+    if (!packed) {
+      writeTag(field, WireType.VARINT);
+    }
+    writeVarInt64(v);
+  }
+
+  @Override
+  public void visitFloat(Field field, float f) {
+    visitI32(field, Float.floatToRawIntBits(f));
+  }
+
+  @Override
+  public void visitFixed32(Field field, int v) {
+    visitI32(field, v);
+  }
+
+  @Override
+  public void visitSFixed32(Field field, int v) {
+    visitI32(field, v);
+  }
+
+  private void visitI32(Field field, int v) {
+    if (!packed) {
+      writeTag(field, WireType.I32);
+    }
+    writeI32(v);
+  }
+
+  @Override
+  public void visitDouble(Field field, double d) {
+    visitI64(field, Double.doubleToRawLongBits(d));
+  }
+
+  @Override
+  public void visitFixed64(Field field, long v) {
+    visitI64(field, v);
+  }
+
+  @Override
+  public void visitSFixed64(Field field, long v) {
+    visitI64(field, v);
+  }
+
+  private void visitI64(Field field, long v) {
+    if (!packed) {
+      writeTag(field, WireType.I64);
+    }
+    writeI64(v);
+  }
+
+  @Override
+  public void visitBytes(Field field, byte[] bytes) {
+    writeLengthDelimited(field, bytes.length);
+    writeBytes(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public void visitString(Field field, String s) {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    writeLengthDelimited(field, bytes.length);
+    writeBytes(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public boolean utf8Strings() {
+    return true;
+  }
+
+  @Override
+  public void visitString(Field field, Utf8String s) {
+    writeLengthDelimited(field, s.length());
+    writeBytes(s.array(), s.offset(), s.length());
+  }
+
+  @Override
+  public UnknownFieldMode unknownFieldMode() {
+    return UnknownFieldMode.PRESERVE;
+  }
+
+  @Override
+  public void visitUnknownRaw(MessageType type, ProtobufDecoder decoder, int offset, int length) {
+    if (decoder instanceof DefaultProtobufDecoder) {
+      writeBytes(((DefaultProtobufDecoder) decoder).buffer(), offset, length);
+    } else {
+      writeBytes(decoder.slice(offset, length).readBytes(length), 0, length);
+    }
+  }
+
+  @Override
+  public void visitPackedInt32(Field field, int[] values, int from, int to) {
+    enterPacked(field);
+    for (int i = from;i < to;i++) {
+      visitVarInt32(field, values[i]);
+    }
+    leavePacked(field);
+  }
+
+  @Override
+  public void visitPackedUInt32(Field field, int[] values, int from, int to) {
+    enterPacked(field);
+    for (int i = from;i < to;i++) {
+      visitVarInt32(field, values[i]);
+    }
+    leavePacked(field);
+  }
+
+  @Override
+  public void visitPackedSInt32(Field field, int[] values, int from, int to) {
+    enterPacked(field);
+    for (int i = from;i < to;i++) {
+      visitVarInt32(field, encodeSInt32(values[i]));
+    }
+    leavePacked(field);
+  }
+
+  @Override
+  public void visitPackedEnum(Field field, int[] values, int from, int to) {
+    enterPacked(field);
+    for (int i = from;i < to;i++) {
+      visitVarInt64(field, values[i]);
+    }
+    leavePacked(field);
+  }
+
+  @Override
+  public void visitPackedInt64(Field field, long[] values, int from, int to) {
+    enterPacked(field);
+    for (int i = from;i < to;i++) {
+      visitVarInt64(field, values[i]);
+    }
+    leavePacked(field);
+  }
+
+  @Override
+  public void visitPackedUInt64(Field field, long[] values, int from, int to) {
+    enterPacked(field);
+    for (int i = from;i < to;i++) {
+      visitVarInt64(field, values[i]);
+    }
+    leavePacked(field);
+  }
+
+  @Override
+  public void visitPackedSInt64(Field field, long[] values, int from, int to) {
+    enterPacked(field);
+    for (int i = from;i < to;i++) {
+      visitVarInt64(field, encodeSInt64(values[i]));
+    }
+    leavePacked(field);
+  }
+
+  @Override
+  public void visitPackedBool(Field field, boolean[] values, int from, int to) {
+    enterPacked(field);
+    for (int i = from;i < to;i++) {
+      visitVarInt64(field, values[i] ? 1 : 0);
+    }
+    leavePacked(field);
+  }
+
+  // Fixed size values have a known length, the length prefix is written directly
+
+  @Override
+  public void visitPackedDouble(Field field, double[] values, int from, int to) {
+    beginFixedPacked(field, to - from, 8);
+    for (int i = from;i < to;i++) {
+      visitI64(field, Double.doubleToRawLongBits(values[i]));
+    }
+    packed = false;
+  }
+
+  @Override
+  public void visitPackedFixed64(Field field, long[] values, int from, int to) {
+    beginFixedPacked(field, to - from, 8);
+    for (int i = from;i < to;i++) {
+      visitI64(field, values[i]);
+    }
+    packed = false;
+  }
+
+  @Override
+  public void visitPackedSFixed64(Field field, long[] values, int from, int to) {
+    beginFixedPacked(field, to - from, 8);
+    for (int i = from;i < to;i++) {
+      visitI64(field, values[i]);
+    }
+    packed = false;
+  }
+
+  @Override
+  public void visitPackedFloat(Field field, float[] values, int from, int to) {
+    beginFixedPacked(field, to - from, 4);
+    for (int i = from;i < to;i++) {
+      visitI32(field, Float.floatToRawIntBits(values[i]));
+    }
+    packed = false;
+  }
+
+  @Override
+  public void visitPackedFixed32(Field field, int[] values, int from, int to) {
+    beginFixedPacked(field, to - from, 4);
+    for (int i = from;i < to;i++) {
+      visitI32(field, values[i]);
+    }
+    packed = false;
+  }
+
+  @Override
+  public void visitPackedSFixed32(Field field, int[] values, int from, int to) {
+    beginFixedPacked(field, to - from, 4);
+    for (int i = from;i < to;i++) {
+      visitI32(field, values[i]);
+    }
+    packed = false;
+  }
+
+  private void beginFixedPacked(Field field, int count, int size) {
+    if (field.isPacked()) {
+      writeLengthDelimited(field, count * size);
+      ensure(count * size);
+      packed = true;
+    }
+  }
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+import io.vertx.protobuf.schema.EnumType;
+import io.vertx.protobuf.schema.Field;
+import io.vertx.protobuf.schema.MessageType;
+import io.vertx.protobuf.schema.ScalarType;
+import io.vertx.protobuf.schema.WireType;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Dispatch table of a message type, keyed by the raw tag value (field number and wire type).
+ *
+ * <p>Entries of the fields declared by {@link MessageType#fields()} are created with the table, other entries are
+ * resolved lazily from {@link MessageType#field(int)} the first time a tag is seen, so the table works for any message
+ * type implementation. Tags of small field numbers are stored in a dense array, larger ones in a sparse open
+ * addressing table. Both are copy-on-write, lookups do not lock.</p>
+ *
+ * <p>Encoders write fields in declaration order. Each declared entry links to the entry of the field declared after
+ * it, so {@link #next(Entry, int)} usually resolves a tag with a single comparison instead of a lookup. The links are
+ * fixed when the table is created.</p>
+ *
+ * <p>A table is kept in the {@link MessageType#runtimeData()} slot of its type, so it lives as long as the type and is
+ * dropped when the type is modified. Tables of enum types, e.g. generated message literals, are cached for the
+ * lifetime of their class, tables of other types are cached weakly.</p>
+ */
+final class TagTable {
+
+  // Actions
+  static final int VARINT_INT32 = 0;
+  static final int VARINT_UINT32 = 1;
+  static final int VARINT_SINT32 = 2;
+  static final int VARINT_ENUM = 3;
+  static final int VARINT_INT64 = 4;
+  static final int VARINT_UINT64 = 5;
+  static final int VARINT_SINT64 = 6;
+  static final int VARINT_BOOL = 7;
+  static final int I32_FIXED32 = 8;
+  static final int I32_SFIXED32 = 9;
+  static final int I32_FLOAT = 10;
+  static final int I64_FIXED64 = 11;
+  static final int I64_SFIXED64 = 12;
+  static final int I64_DOUBLE = 13;
+  static final int LEN_STRING = 14;
+  static final int LEN_BYTES = 15;
+  static final int LEN_MESSAGE = 16;
+  static final int LEN_PACKED = 17;
+  static final int UNKNOWN_VARINT = 18;
+  static final int UNKNOWN_I32 = 19;
+  static final int UNKNOWN_I64 = 20;
+  static final int UNKNOWN_LEN = 21;
+  static final int WIRE_TYPE_MISMATCH = 22;
+
+  /**
+   * Tags below this value are stored in the dense array, this covers field numbers up to 255.
+   */
+  private static final int DENSE_LIMIT = 256 << 3;
+
+  /**
+   * Maximum number of cached unknown field entries, so hostile input cannot grow the cache without bounds.
+   */
+  private static final int MAX_UNKNOWN_ENTRIES = 256;
+
+  private static final ConcurrentHashMap<MessageType, TagTable> constants = new ConcurrentHashMap<>();
+  // A table references its type, so it is referenced weakly as well
+  private static final Map<MessageType, WeakReference<TagTable>> others = Collections.synchronizedMap(new WeakHashMap<>());
+
+  static TagTable of(MessageType type) {
+    AtomicReference<Object> slot = type.runtimeData();
+    if (slot != null) {
+      while (true) {
+        Object data = slot.get();
+        if (data instanceof TagTable) {
+          return (TagTable) data;
+        }
+        TagTable table = new TagTable(type);
+        if (slot.compareAndSet(data, table)) {
+          return table;
+        }
+      }
+    }
+    if (type instanceof Enum) {
+      TagTable table = constants.get(type);
+      if (table == null) {
+        table = constants.computeIfAbsent(type, TagTable::new);
+      }
+      return table;
+    }
+    synchronized (others) {
+      WeakReference<TagTable> ref = others.get(type);
+      TagTable table = ref != null ? ref.get() : null;
+      if (table == null) {
+        table = new TagTable(type);
+        others.put(type, new WeakReference<>(table));
+      }
+      return table;
+    }
+  }
+
+  static final class Entry {
+
+    final int tag;
+    final int action;
+    // Per element action of packed fields
+    final int elementAction;
+    final Field field;
+    final boolean unknown;
+    // The entry of the field declared after this one or null
+    final Entry next;
+    private volatile TagTable nested;
+
+    Entry(int tag, int action, int elementAction, Field field, Entry next) {
+      this.tag = tag;
+      this.action = action;
+      this.elementAction = elementAction;
+      this.field = field;
+      this.next = next;
+      this.unknown = action >= UNKNOWN_VARINT && action <= UNKNOWN_LEN;
+    }
+
+    /**
+     * @return the table of an embedded message field
+     */
+    TagTable nested() {
+      MessageType type = (MessageType) field.type();
+      if (type.runtimeData() != null) {
+        // Not cached, the table is replaced when the type is modified
+        return of(type);
+      }
+      TagTable table = nested;
+      if (table == null) {
+        table = of(type);
+        nested = table;
+      }
+      return table;
+    }
+  }
+
+  final MessageType type;
+  // The entry of the first declared field or null
+  private final Entry first;
+  private volatile Entry[] dense = new Entry[16 << 3];
+  private volatile Sparse sparse = new Sparse(new int[0], new Entry[0]);
+  private volatile Sparse unknowns = new Sparse(new int[0], new Entry[0]);
+
+  /**
+   * Immutable open addressing table, updates return a copy.
+   */
+  private static final class Sparse {
+    final int[] keys;
+    final Entry[] values;
+    final int size;
+    Sparse(int[] keys, Entry[] values) {
+      this.keys = keys;
+      this.values = values;
+      int size = 0;
+      for (int key : keys) {
+        if (key != 0) {
+          size++;
+        }
+      }
+      this.size = size;
+    }
+    Entry get(int tag) {
+      int[] keys = this.keys;
+      if (keys.length > 0) {
+        int mask = keys.length - 1;
+        int idx = mix(tag) & mask;
+        while (true) {
+          int key = keys[idx];
+          if (key == tag) {
+            return values[idx];
+          } else if (key == 0) {
+            break;
+          }
+          idx = (idx + 1) & mask;
+        }
+      }
+      return null;
+    }
+    Sparse put(int tag, Entry entry) {
+      int capacity = Math.max(8, keys.length);
+      while ((size + 1) * 2 > capacity) {
+        capacity <<= 1;
+      }
+      int[] newKeys = new int[capacity];
+      Entry[] newValues = new Entry[capacity];
+      for (int i = 0;i < keys.length;i++) {
+        if (keys[i] != 0 && keys[i] != tag) {
+          insert(newKeys, newValues, keys[i], values[i]);
+        }
+      }
+      insert(newKeys, newValues, tag, entry);
+      return new Sparse(newKeys, newValues);
+    }
+  }
+
+  private TagTable(MessageType type) {
+    this.type = type;
+    // Created from the last declared field so each entry links to its successor
+    Field[] fields = type.fields().toArray(new Field[0]);
+    Entry next = null;
+    for (int i = fields.length - 1;i >= 0;i--) {
+      Field field = fields[i];
+      WireType wireType = field.isPacked() ? WireType.LEN : field.type().wireType();
+      int tag = field.number() << 3 | wireType.id;
+      Entry entry = create(tag, field, wireType, next);
+      store(tag, entry);
+      next = entry;
+    }
+    this.first = next;
+  }
+
+  /**
+   * Lookup the entry of a raw tag, the tag is an unsigned value since field numbers use up to 29 bits.
+   *
+   * @throws DecodeException when the tag is invalid
+   */
+  Entry lookup(int tag) {
+    Entry[] d = dense;
+    if (tag >= 0 && tag < d.length) {
+      Entry entry = d[tag];
+      if (entry != null) {
+        return entry;
+      }
+    } else {
+      Entry entry = sparse.get(tag);
+      if (entry != null) {
+        return entry;
+      }
+    }
+    return resolve(tag);
+  }
+
+  /**
+   * Lookup the entry of a raw tag read after the field of {@code prev}. A repeated field or the field declared after
+   * {@code prev} is matched without a lookup.
+   *
+   * @param prev the entry of the previous field of the message or {@code null} for the first field
+   * @throws DecodeException when the tag is invalid
+   */
+  Entry next(Entry prev, int tag) {
+    Entry predicted;
+    if (prev == null) {
+      predicted = first;
+    } else if (prev.tag == tag) {
+      return prev;
+    } else {
+      predicted = prev.next;
+    }
+    if (predicted != null && predicted.tag == tag) {
+      return predicted;
+    }
+    return lookup(tag);
+  }
+
+  private Entry resolve(int tag) {
+    int number = tag >>> 3;
+    if (number == 0) {
+      throw new DecodeException();
+    }
+    int decodedWireType = tag & 0b0111;
+    WireType wireType = ProtobufReader.wireTypes[decodedWireType];
+    if (wireType == null) {
+      throw new DecodeException("Invalid wire type: " + decodedWireType);
+    }
+    Field field = type.field(number);
+    if (field == null) {
+      return resolveUnknown(tag, number, wireType);
+    }
+    Entry entry = create(tag, field, wireType, null);
+    store(tag, entry);
+    return entry;
+  }
+
+  /**
+   * Unknown fields are cached apart since the field might be added later to the type, they are looked up after
+   * checking the field is still unknown.
+   */
+  private Entry resolveUnknown(int tag, int number, WireType wireType) {
+    Sparse u = unknowns;
+    Entry entry = u.get(tag);
+    if (entry == null) {
+      entry = createUnknown(tag, number, wireType);
+      if (u.size < MAX_UNKNOWN_ENTRIES) {
+        synchronized (this) {
+          unknowns = unknowns.put(tag, entry);
+        }
+      }
+    }
+    return entry;
+  }
+
+  private synchronized void store(int tag, Entry entry) {
+    if (tag >= 0 && tag < DENSE_LIMIT) {
+      Entry[] d = dense;
+      if (tag >= d.length) {
+        int len = d.length;
+        while (len <= tag) {
+          len <<= 1;
+        }
+        d = Arrays.copyOf(d, len);
+      } else {
+        d = d.clone();
+      }
+      d[tag] = entry;
+      dense = d;
+    } else {
+      sparse = sparse.put(tag, entry);
+    }
+  }
+
+  private Entry createUnknown(int tag, int number, WireType wireType) {
+    int action;
+    switch (wireType) {
+      case VARINT:
+        action = UNKNOWN_VARINT;
+        break;
+      case I32:
+        action = UNKNOWN_I32;
+        break;
+      case I64:
+        action = UNKNOWN_I64;
+        break;
+      default:
+        action = UNKNOWN_LEN;
+        break;
+    }
+    return new Entry(tag, action, -1, type.unknownField(number, wireType), null);
+  }
+
+  private Entry create(int tag, Field field, WireType wireType, Entry next) {
+    int scalarAction = scalarAction(field);
+    if (wireType == WireType.LEN) {
+      if (field.type() instanceof MessageType) {
+        return new Entry(tag, LEN_MESSAGE, -1, field, next);
+      }
+      switch (field.type().id()) {
+        case STRING:
+          return new Entry(tag, LEN_STRING, -1, field, next);
+        case BYTES:
+          return new Entry(tag, LEN_BYTES, -1, field, next);
+        default:
+          return new Entry(tag, scalarAction == -1 ? WIRE_TYPE_MISMATCH : LEN_PACKED, scalarAction, field, next);
+      }
+    }
+    if (scalarAction == -1 || field.type().wireType() != wireType) {
+      return new Entry(tag, WIRE_TYPE_MISMATCH, -1, field, next);
+    }
+    return new Entry(tag, scalarAction, -1, field, next);
+  }
+
+  /**
+   * @return the action decoding a single value of a non length delimited field or {@code -1}
+   */
+  private static int scalarAction(Field field) {
+    if (field.type() instanceof EnumType) {
+      return VARINT_ENUM;
+    }
+    if (!(field.type() instanceof ScalarType)) {
+      return -1;
+    }
+    switch (field.type().id()) {
+      case INT32:
+        return VARINT_INT32;
+      case UINT32:
+        return VARINT_UINT32;
+      case SINT32:
+        return VARINT_SINT32;
+      case ENUM:
+        return VARINT_ENUM;
+      case INT64:
+        return VARINT_INT64;
+      case UINT64:
+        return VARINT_UINT64;
+      case SINT64:
+        return VARINT_SINT64;
+      case BOOL:
+        return VARINT_BOOL;
+      case FIXED32:
+        return I32_FIXED32;
+      case SFIXED32:
+        return I32_SFIXED32;
+      case FLOAT:
+        return I32_FLOAT;
+      case FIXED64:
+        return I64_FIXED64;
+      case SFIXED64:
+        return I64_SFIXED64;
+      case DOUBLE:
+        return I64_DOUBLE;
+      default:
+        return -1;
+    }
+  }
+
+  private static void insert(int[] keys, Entry[] values, int tag, Entry entry) {
+    int mask = keys.length - 1;
+    int idx = mix(tag) & mask;
+    while (keys[idx] != 0) {
+      idx = (idx + 1) & mask;
+    }
+    keys[idx] = tag;
+    values[idx] = entry;
+  }
+
+  private static int mix(int tag) {
+    int h = tag * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
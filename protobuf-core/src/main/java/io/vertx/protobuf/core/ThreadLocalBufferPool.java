@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+/**
+ * Retain the last released array of each thread. An acquired array is removed from the pool until it is released,
+ * so an array is never handed out twice.
+ */
+final class ThreadLocalBufferPool implements BufferPool {
+
+  private static final int MIN_CAPACITY = 256;
+
+  private final ThreadLocal<byte[]> retained = new ThreadLocal<>();
+  private final int maxRetainedCapacity;
+
+  ThreadLocalBufferPool(int maxRetainedCapacity) {
+    if (maxRetainedCapacity < 0) {
+      throw new IllegalArgumentException("Invalid max retained capacity: " + maxRetainedCapacity);
+    }
+    this.maxRetainedCapacity = maxRetainedCapacity;
+  }
+
+  @Override
+  public byte[] acquire(int capacity) {
+    byte[] buffer = retained.get();
+    if (buffer != null && buffer.length >= capacity) {
+      retained.set(null);
+      return buffer;
+    }
+    // Round up so a slightly larger message does not need another array
+    int size = Math.max(MIN_CAPACITY, capacity);
+    int rounded = Integer.highestOneBit(size - 1) << 1;
+    if (size <= maxRetainedCapacity && rounded > 0) {
+      size = Math.min(maxRetainedCapacity, rounded);
+    }
+    return new byte[size];
+  }
+
+  @Override
+  public void release(byte[] buffer) {
+    if (buffer.length <= maxRetainedCapacity) {
+      byte[] current = retained.get();
+      if (current == null || current.length < buffer.length) {
+        retained.set(buffer);
+      }
+    }
+  }
+}
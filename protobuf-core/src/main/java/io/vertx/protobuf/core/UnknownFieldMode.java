@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+/**
+ * How {@link ProtobufReader} reports the unknown fields of a message to a visitor, see
+ * {@link ProtoVisitor#unknownFieldMode()}.
+ */
+public enum UnknownFieldMode {
+
+  /**
+   * Decode unknown fields and visit them like declared fields, length-delimited values are copied to a byte array.
+   */
+  VISIT,
+
+  /**
+   * Skip unknown fields without decoding nor visiting them.
+   */
+  DISCARD,
+
+  /**
+   * Skip unknown fields and visit each run of consecutive unknown fields as an undecoded range of the source with
+   * {@link ProtoVisitor#visitUnknownRaw(io.vertx.protobuf.schema.MessageType, ProtobufDecoder, int, int)}.
+   */
+  PRESERVE
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Strict UTF-8 validation and decoding of string fields.
+ *
+ * <p>ASCII runs are scanned 8 bytes at a time, a pure ASCII string is then copied as Latin-1 which is a plain
+ * array copy for compact strings. Other strings are validated before being decoded: overlong encodings,
+ * surrogates, code points above {@code U+10FFFF} and truncated sequences are rejected instead of being
+ * replaced.</p>
+ */
+public final class Utf8 {
+
+  private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final long HIGH_BITS = 0x8080808080808080L;
+
+  private Utf8() {
+  }
+
+  /**
+   * Decode a UTF-8 string.
+   *
+   * @throws DecodeException when the bytes are not valid UTF-8
+   */
+  public static String decode(byte[] bytes, int offset, int length) {
+    int end = offset + length;
+    if (offset < 0 || length < 0 || end > bytes.length) {
+      throw new DecodeException();
+    }
+    int i = scanAscii(bytes, offset, end);
+    if (i == end) {
+      return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+    if (!validate(bytes, i, end)) {
+      throw new DecodeException("Invalid UTF-8 string");
+    }
+    return new String(bytes, offset, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return whether the {@code length} bytes starting at {@code offset} are valid UTF-8
+   */
+  public static boolean isValid(byte[] bytes, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > bytes.length) {
+      throw new IndexOutOfBoundsException();
+    }
+    return validate(bytes, offset, offset + length);
+  }
+
+  /**
+   * @return the index of the first non ASCII byte between {@code from} and {@code to} or {@code to}
+   */
+  static int scanAscii(byte[] bytes, int from, int to) {
+    int i = from;
+    while (to - i >= 8) {
+      long word = (long) LONG_LE.get(bytes, i);
+      long high = word & HIGH_BITS;
+      if (high != 0) {
+        return i + (Long.numberOfTrailingZeros(high) >> 3);
+      }
+      i += 8;
+    }
+    while (i < to && bytes[i] >= 0) {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean validate(byte[] bytes, int i, int end) {
+    while (i < end) {
+      byte b0 = bytes[i];
+      if (b0 >= 0) {
+        i = scanAscii(bytes, i + 1, end);
+        continue;
+      }
+      // Bytes are compared signed, continuation bytes 0x80 to 0xBF are <= (byte) 0xBF
+      if (b0 < (byte) 0xC2) {
+        // Continuation byte or overlong 2 bytes sequence
+        return false;
+      } else if (b0 < (byte) 0xE0) {
+        if (end - i < 2 || bytes[i + 1] > (byte) 0xBF) {
+          return false;
+        }
+        i += 2;
+      } else if (b0 < (byte) 0xF0) {
+        if (end - i < 3) {
+          return false;
+        }
+        byte b1 = bytes[i + 1];
+        if (b1 > (byte) 0xBF
+          // Overlong
+          || (b0 == (byte) 0xE0 && b1 < (byte) 0xA0)
+          // Surrogates
+          || (b0 == (byte) 0xED && b1 >= (byte) 0xA0)
+          || bytes[i + 2] > (byte) 0xBF) {
+          return false;
+        }
+        i += 3;
+      } else {
+        if (b0 > (byte) 0xF4 || end - i < 4) {
+          return false;
+        }
+        byte b1 = bytes[i + 1];
+        if (b1 > (byte) 0xBF
+          // Overlong
+          || (b0 == (byte) 0xF0 && b1 < (byte) 0x90)
+          // Above U+10FFFF
+          || (b0 == (byte) 0xF4 && b1 >= (byte) 0x90)
+          || bytes[i + 2] > (byte) 0xBF
+          || bytes[i + 3] > (byte) 0xBF) {
+          return false;
+        }
+        i += 4;
+      }
+    }
+    return true;
+  }
+}
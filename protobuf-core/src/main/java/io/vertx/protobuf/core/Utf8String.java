@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A string value held as UTF-8 bytes, decoded to a {@link String} only when {@link #toString()} is called.
+ *
+ * <p>A string read by a decoder is usually a view over the decoded buffer, it is valid as long as the buffer is
+ * not modified. Equality and hash code are computed on the bytes, the hash code is not the hash code of the
+ * decoded {@link String}.</p>
+ */
+public final class Utf8String {
+
+  private static final byte[] EMPTY = new byte[0];
+
+  /**
+   * Create a string encoding {@code s} to UTF-8.
+   */
+  public static Utf8String of(String s) {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    Utf8String utf8 = new Utf8String(bytes, 0, bytes.length);
+    utf8.string = s;
+    return utf8;
+  }
+
+  /**
+   * Create a view over the {@code length} bytes of {@code bytes} starting at {@code offset}.
+   */
+  public static Utf8String wrap(byte[] bytes, int offset, int length) {
+    if (offset < 0 || length < 0 || length > bytes.length - offset) {
+      throw new IndexOutOfBoundsException();
+    }
+    return new Utf8String(bytes, offset, length);
+  }
+
+  public static Utf8String wrap(byte[] bytes) {
+    return new Utf8String(bytes, 0, bytes.length);
+  }
+
+  private final byte[] bytes;
+  private final int offset;
+  private final int length;
+  private String string;
+  private int hash;
+
+  private Utf8String(byte[] bytes, int offset, int length) {
+    this.bytes = length == 0 ? EMPTY : bytes;
+    this.offset = length == 0 ? 0 : offset;
+    this.length = length;
+  }
+
+  /**
+   * @return the array holding the bytes, it must not be modified
+   */
+  public byte[] array() {
+    return bytes;
+  }
+
+  /**
+   * @return the index of the first byte in {@link #array()}
+   */
+  public int offset() {
+    return offset;
+  }
+
+  /**
+   * @return the length in bytes
+   */
+  public int length() {
+    return length;
+  }
+
+  public boolean isEmpty() {
+    return length == 0;
+  }
+
+  /**
+   * @return a copy of the bytes
+   */
+  public byte[] getBytes() {
+    return Arrays.copyOfRange(bytes, offset, offset + length);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj instanceof Utf8String) {
+      Utf8String that = (Utf8String) obj;
+      return Arrays.equals(bytes, offset, offset + length, that.bytes, that.offset, that.offset + that.length);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0 && length > 0) {
+      h = 1;
+      for (int i = offset;i < offset + length;i++) {
+        h = 31 * h + bytes[i];
+      }
+      hash = h;
+    }
+    return h;
+  }
+
+  /**
+   * @return whether the bytes are valid UTF-8
+   */
+  public boolean isValid() {
+    return string != null || Utf8.isValid(bytes, offset, length);
+  }
+
+  /**
+   * @return the decoded string, the result is cached
+   * @throws DecodeException when the bytes are not valid UTF-8
+   */
+  @Override
+  public String toString() {
+    String s = string;
+    if (s == null) {
+      s = Utf8.decode(bytes, offset, length);
+      string = s;
+    }
+    return s;
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.vertx.protobuf.core.DecodeException;
+import io.vertx.protobuf.core.ProtobufDecoder;
+import io.vertx.protobuf.core.Utf8;
+import io.vertx.protobuf.core.Utf8String;
+
+/**
+ * A decoder reading from a Netty {@link ByteBuf}, composite buffers included, without copying its content first.
+ *
+ * <p>The decoder reads the bytes between the reader index and the writer index with absolute operations, the
+ * buffer indices are not modified. Indices returned by {@link #index()} and accepted by {@link #index(int)} and
+ * {@link #len(int)} are absolute buffer indices.</p>
+ */
+public class ByteBufProtobufDecoder implements ProtobufDecoder {
+
+  private final ByteBuf buffer;
+  private int idx;
+  private int len;
+  private int fieldNumber;
+  private int wireType;
+  private int intValue;
+  private long longValue;
+
+  public ByteBufProtobufDecoder(ByteBuf buffer) {
+    this.buffer = buffer;
+    this.idx = buffer.readerIndex();
+    this.len = buffer.writerIndex();
+  }
+
+  /**
+   * @return the decoded buffer, indices of this decoder are absolute indices of this buffer
+   */
+  public ByteBuf buffer() {
+    return buffer;
+  }
+
+  public int len() {
+    return len;
+  }
+
+  public ByteBufProtobufDecoder len(int len) {
+    this.len = len;
+    return this;
+  }
+
+  public ByteBufProtobufDecoder index(int index) {
+    idx = index;
+    return this;
+  }
+
+  public int index() {
+    return idx;
+  }
+
+  public void skip(int n) {
+    idx += n;
+  }
+
+  public String readString(int lengthInBytes) {
+    if (lengthInBytes < 0 || lengthInBytes > len - idx) {
+      throw new DecodeException();
+    }
+    String str;
+    if (buffer.hasArray()) {
+      str = Utf8.decode(buffer.array(), buffer.arrayOffset() + idx, lengthInBytes);
+    } else {
+      byte[] bytes = new byte[lengthInBytes];
+      buffer.getBytes(idx, bytes);
+      str = Utf8.decode(bytes, 0, lengthInBytes);
+    }
+    idx += lengthInBytes;
+    return str;
+  }
+
+  /**
+   * Read a string as a view over the backing array of a heap buffer, the bytes of other buffers are copied.
+   */
+  @Override
+  public Utf8String readUtf8String(int lengthInBytes) {
+    if (lengthInBytes < 0 || lengthInBytes > len - idx) {
+      throw new DecodeException();
+    }
+    if (!buffer.hasArray()) {
+      return Utf8String.wrap(readBytes(lengthInBytes));
+    }
+    Utf8String str = Utf8String.wrap(buffer.array(), buffer.arrayOffset() + idx, lengthInBytes);
+    idx += lengthInBytes;
+    return str;
+  }
+
+  public byte[] readBytes(int lengthInBytes) {
+    if (lengthInBytes < 0 || lengthInBytes > len - idx) {
+      throw new DecodeException();
+    }
+    byte[] bytes = new byte[lengthInBytes];
+    buffer.getBytes(idx, bytes);
+    idx += lengthInBytes;
+    return bytes;
+  }
+
+  public boolean readTag() {
+    int c = idx;
+    int e = decodeVarInt32();
+    if (idx > c) {
+      fieldNumber = e >> 3;
+      wireType = e & 0b0111;
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  public int fieldNumber() {
+    return fieldNumber;
+  }
+
+  public int wireType() {
+    return wireType;
+  }
+
+  public int intValue() {
+    return intValue;
+  }
+
+  public long longValue() {
+    return longValue;
+  }
+
+  public boolean readVarInt32() {
+    int c = idx;
+    intValue = decodeVarInt32();
+    return idx > c;
+  }
+
+  public boolean readVarInt64() {
+    int c = idx;
+    longValue = decodeVarInt64();
+    return idx > c;
+  }
+
+  public boolean readI32() {
+    intValue = buffer.getIntLE(idx);
+    idx += 4;
+    return true;
+  }
+
+  public boolean readI64() {
+    longValue = buffer.getLongLE(idx);
+    idx += 8;
+    return true;
+  }
+
+  public boolean isReadable() {
+    return idx < len;
+  }
+
+  public ByteBufProtobufDecoder slice(int index, int length) {
+    return new ByteBufProtobufDecoder(buffer).index(index).len(index + length);
+  }
+
+  public int decodeVarInt32() {
+    return (int) decodeRawVarInt();
+  }
+
+  public long decodeVarInt64() {
+    return decodeRawVarInt();
+  }
+
+  public int decodeI32() {
+    int i = idx;
+    if (len - i < 4) {
+      throw new DecodeException();
+    }
+    idx = i + 4;
+    return buffer.getIntLE(i);
+  }
+
+  public long decodeI64() {
+    int i = idx;
+    if (len - i < 8) {
+      throw new DecodeException();
+    }
+    idx = i + 8;
+    return buffer.getLongLE(i);
+  }
+
+  private long decodeRawVarInt() {
+    int i = idx;
+    long val = 0;
+    int shift = 0;
+    while (i < len) {
+      byte b = buffer.getByte(i++);
+      if (shift < 64) {
+        val |= (long)(b & 0x7F) << shift;
+      }
+      if ((b & 0x80) == 0) {
+        idx = i;
+        return val;
+      }
+      shift += 7;
+    }
+    throw new DecodeException();
+  }
+}
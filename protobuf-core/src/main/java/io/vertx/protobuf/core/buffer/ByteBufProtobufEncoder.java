@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.vertx.protobuf.core.ProtobufDecoder;
+import io.vertx.protobuf.core.ProtobufEncoder;
+import io.vertx.protobuf.core.Utf8String;
+
+/**
+ * An encoder appending to a Netty {@link ByteBuf} at its writer index.
+ */
+public class ByteBufProtobufEncoder implements ProtobufEncoder {
+
+  private final ByteBuf buffer;
+  private final int start;
+
+  public ByteBufProtobufEncoder(ByteBuf buffer) {
+    this.buffer = buffer;
+    this.start = buffer.writerIndex();
+  }
+
+  public ByteBufProtobufEncoder(ByteBuf buffer, int size) {
+    this(buffer.ensureWritable(size));
+  }
+
+  public ByteBuf byteBuf() {
+    return buffer;
+  }
+
+  /**
+   * @return a copy of the bytes written by this encoder
+   */
+  public byte[] buffer() {
+    return ByteBufUtil.getBytes(buffer, start, buffer.writerIndex() - start);
+  }
+
+  /**
+   * @return the number of bytes written by this encoder
+   */
+  public int index() {
+    return buffer.writerIndex() - start;
+  }
+
+  public void writeTag(int fieldNumber, int wireType) {
+    writeVarInt32((fieldNumber << 3) | (wireType & 0x07));
+  }
+
+  public void writeVarInt32(int v) {
+    while (true) {
+      if ((v & ~0x7F) == 0) {
+        buffer.writeByte(v);
+        return;
+      } else {
+        buffer.writeByte((v & 0x7F) | 0x80);
+        v >>>= 7;
+      }
+    }
+  }
+
+  public void writeVarInt64(long v) {
+    while (true) {
+      if ((v & ~0x7FL) == 0) {
+        buffer.writeByte((int) v);
+        return;
+      } else {
+        buffer.writeByte((int) ((v & 0x7F) | 0x80));
+        v >>>= 7;
+      }
+    }
+  }
+
+  public void writeInt(int d) {
+    buffer.writeIntLE(d);
+  }
+
+  public void writeLong(long d) {
+    buffer.writeLongLE(d);
+  }
+
+  public void writeString(String s) {
+    ByteBufUtil.writeUtf8(buffer, s);
+  }
+
+  public void writeBinary(byte[] bytes) {
+    buffer.writeBytes(bytes);
+  }
+
+  @Override
+  public void writeUtf8String(Utf8String s) {
+    buffer.writeBytes(s.array(), s.offset(), s.length());
+  }
+
+  @Override
+  public void writeRaw(ProtobufDecoder decoder, int offset, int length) {
+    if (decoder instanceof ByteBufProtobufDecoder) {
+      buffer.writeBytes(((ByteBufProtobufDecoder) decoder).buffer(), offset, length);
+    } else {
+      ProtobufEncoder.super.writeRaw(decoder, offset, length);
+    }
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.core.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.internal.buffer.BufferInternal;
+import io.vertx.core.streams.WriteStream;
+import io.vertx.protobuf.core.EncodeException;
+import io.vertx.protobuf.core.ProtoStream;
+import io.vertx.protobuf.core.ProtoVisitor;
+import io.vertx.protobuf.core.ProtobufReader;
+import io.vertx.protobuf.core.ProtobufWriter;
+import io.vertx.protobuf.core.ReaderLimits;
+import io.vertx.protobuf.schema.MessageType;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Read and write protobuf messages from/to Vert.x {@link Buffer} and Netty {@link ByteBuf} without going through
+ * an intermediate byte array.
+ */
+public class ProtobufBuffer {
+
+  public static ProtoStream readerStream(MessageType rootType, Buffer buffer) {
+    return v -> parse(rootType, v, buffer);
+  }
+
+  /**
+   * Like {@link #readerStream(MessageType, Buffer)}, the message is parsed with {@code limits}.
+   */
+  public static ProtoStream readerStream(MessageType rootType, Buffer buffer, ReaderLimits limits) {
+    return v -> parse(rootType, v, buffer, limits);
+  }
+
+  public static void parse(MessageType rootType, ProtoVisitor visitor, Buffer buffer) {
+    parse(rootType, visitor, ((BufferInternal) buffer).getByteBuf());
+  }
+
+  /**
+   * Like {@link #parse(MessageType, ProtoVisitor, Buffer)}, the message is parsed with {@code limits}.
+   */
+  public static void parse(MessageType rootType, ProtoVisitor visitor, Buffer buffer, ReaderLimits limits) {
+    parse(rootType, visitor, ((BufferInternal) buffer).getByteBuf(), limits);
+  }
+
+  /**
+   * Parse the bytes between the reader index and the writer index of a {@link ByteBuf}, the buffer indices are
+   * left untouched.
+   */
+  public static void parse(MessageType rootType, ProtoVisitor visitor, ByteBuf buffer) {
+    parse(rootType, visitor, buffer, null);
+  }
+
+  /**
+   * Like {@link #parse(MessageType, ProtoVisitor, ByteBuf)}, the message is parsed with {@code limits}, the default
+   * limits apply when {@code limits} is {@code null}.
+   */
+  public static void parse(MessageType rootType, ProtoVisitor visitor, ByteBuf buffer, ReaderLimits limits) {
+    ProtobufReader.parse(rootType, visitor, new ByteBufProtobufDecoder(buffer), limits);
+  }
+
+  public static Buffer encodeToBuffer(Consumer<ProtoVisitor> consumer) {
+    ByteBufProtobufEncoder encoder = ProtobufWriter.encode(consumer, size -> new ByteBufProtobufEncoder(Unpooled.buffer(size, size)));
+    return BufferInternal.buffer(encoder.byteBuf());
+  }
+
+  /**
+   * Encode a message at the writer index of a {@link ByteBuf}, the buffer is expanded when needed.
+   *
+   * @return the number of bytes written
+   */
+  public static int encode(Consumer<ProtoVisitor> consumer, ByteBuf buffer) {
+    return ProtobufWriter.encode(consumer, size -> new ByteBufProtobufEncoder(buffer, size)).index();
+  }
+
+  /**
+   * Encode a message to a {@link WriteStream} in chunks of {@code chunkSize} bytes, the message is never held in
+   * memory as a whole.
+   *
+   * <p>This method must be called from a Vert.x context. The message is visited on a worker thread of this context,
+   * chunks are written to the stream on the context. At most {@code 4} chunks are written to the stream and not yet
+   * completed, the worker waits for a write to complete before producing more, so data buffered by the stream stays
+   * bounded by the chunk size. The worker stops waiting as soon as a write fails, e.g. when the stream is closed.</p>
+   *
+   * <p>The stream handlers are left untouched, the completion of the writes is the only signal used.</p>
+   *
+   * @return a future completed once all the chunks are written, or failed when the message cannot be encoded or a
+   * chunk cannot be written
+   */
+  public static Future<Void> encode(Consumer<ProtoVisitor> consumer, WriteStream<Buffer> stream, int chunkSize) {
+    Context context = Vertx.currentContext();
+    if (context == null) {
+      throw new IllegalStateException("Not on a Vert.x context");
+    }
+    StreamSink sink = new StreamSink(context, stream);
+    context.executeBlocking(() -> ProtobufWriter.encode(consumer, chunkSize, sink), false)
+      .onComplete(ar -> {
+        if (ar.succeeded()) {
+          sink.end();
+        } else {
+          sink.fail(ar.cause());
+        }
+      });
+    return sink.result.future();
+  }
+
+  /**
+   * Hand the chunks produced on a worker thread to a stream. Chunks are queued and written in batches on the context,
+   * the worker waits when too many chunks are not yet written.
+   */
+  private static class StreamSink implements ObjIntConsumer<byte[]> {
+
+    // Chunks handed to the stream and not yet written
+    private static final int MAX_PENDING_CHUNKS = 4;
+
+    private final Context context;
+    private final WriteStream<Buffer> stream;
+    private final Promise<Void> result = Promise.promise();
+    private final Semaphore permits = new Semaphore(MAX_PENDING_CHUNKS);
+    private final Queue<Buffer> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean ended;
+    private volatile Throwable failure;
+
+    StreamSink(Context context, WriteStream<Buffer> stream) {
+      this.context = context;
+      this.stream = stream;
+    }
+
+    @Override
+    public void accept(byte[] chunk, int length) {
+      try {
+        permits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new EncodeException(e);
+      }
+      Throwable cause = failure;
+      if (cause != null) {
+        throw new EncodeException(cause);
+      }
+      // The encoder reuses the chunk
+      pending.incrementAndGet();
+      queue.add(Buffer.buffer(Arrays.copyOf(chunk, length)));
+      if (scheduled.compareAndSet(false, true)) {
+        context.runOnContext(v -> drain());
+      }
+    }
+
+    /**
+     * Write the queued chunks, on the context.
+     */
+    private void drain() {
+      scheduled.set(false);
+      Buffer buffer;
+      while ((buffer = queue.poll()) != null) {
+        if (failure != null) {
+          queue.clear();
+          return;
+        }
+        stream.write(buffer).onComplete(ar -> {
+          if (ar.succeeded()) {
+            permits.release();
+            if (pending.decrementAndGet() == 0 && ended) {
+              result.tryComplete();
+            }
+          } else {
+            fail(ar.cause());
+          }
+        });
+      }
+    }
+
+    /**
+     * Signal all the chunks are produced.
+     */
+    void end() {
+      ended = true;
+      if (pending.get() == 0) {
+        result.tryComplete();
+      }
+    }
+
+    void fail(Throwable cause) {
+      if (failure == null) {
+        failure = cause;
+      }
+      result.tryFail(cause);
+      // Wake up the worker, it does not wait for writes that might never complete
+      permits.release(MAX_PENDING_CHUNKS);
+    }
+  }
+}
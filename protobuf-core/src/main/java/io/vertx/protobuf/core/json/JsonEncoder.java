@@ -16,6 +16,7 @@
  */
 package io.vertx.protobuf.core.json;
 
+import io.vertx.protobuf.core.Utf8String;
 import io.vertx.protobuf.core.json.jackson.Jackson;
 import io.vertx.protobuf.core.json.jackson.JacksonJsonEncoder;
 
@@ -39,6 +40,13 @@ public interface JsonEncoder {
   void writeInt(int v);
   void writeLong(long v);
   void writeString(String s);
+
+  /**
+   * Write a string, the default implementation decodes it first.
+   */
+  default void writeString(Utf8String s) {
+    writeString(s.toString());
+  }
   void writeNull();
   void close();
 
@@ -19,6 +19,7 @@ package io.vertx.protobuf.core.json;
 import io.vertx.protobuf.core.EncodeException;
 import io.vertx.protobuf.core.ProtoStream;
 import io.vertx.protobuf.core.ProtoVisitor;
+import io.vertx.protobuf.core.Utf8String;
 import io.vertx.protobuf.core.interop.ProtoReader;
 import io.vertx.protobuf.lang.internal.Utils;
 import io.vertx.protobuf.schema.EnumType;
@@ -643,6 +644,23 @@ public class ProtoJsonWriter implements ProtoVisitor {
     }
   }
 
+  @Override
+  public boolean utf8Strings() {
+    return true;
+  }
+
+  @Override
+  public void visitString(Field field, Utf8String s) {
+    if (field.isMapKey()) {
+      encoder.writeFieldName(s.toString());
+    } else if (field.isMapValue()) {
+      encoder.writeString(s);
+    } else {
+      encoder.writeFieldName(field.jsonName());
+      encoder.writeString(s);
+    }
+  }
+
   @Override
   public void visitBytes(Field field, byte[] bytes) {
     try {
@@ -906,6 +924,202 @@ public class ProtoJsonWriter implements ProtoVisitor {
     }
   }
 
+  @Override
+  public void visitPackedInt32(Field field, int[] values, int from, int to) {
+    try {
+      encoder.writeFieldName(field.jsonName());
+      encoder.writeStartArray();
+      for (int i = from;i < to;i++) {
+        writeInt32(values[i]);
+      }
+      encoder.writeEndArray();
+    } catch (IOException e) {
+      throw new EncodeException(e.getMessage());
+    }
+  }
+
+  @Override
+  public void visitPackedUInt32(Field field, int[] values, int from, int to) {
+    try {
+      encoder.writeFieldName(field.jsonName());
+      encoder.writeStartArray();
+      for (int i = from;i < to;i++) {
+        writeUInt32(values[i]);
+      }
+      encoder.writeEndArray();
+    } catch (IOException e) {
+      throw new EncodeException(e.getMessage());
+    }
+  }
+
+  @Override
+  public void visitPackedSInt32(Field field, int[] values, int from, int to) {
+    try {
+      encoder.writeFieldName(field.jsonName());
+      encoder.writeStartArray();
+      for (int i = from;i < to;i++) {
+        writeSInt32(values[i]);
+      }
+      encoder.writeEndArray();
+    } catch (IOException e) {
+      throw new EncodeException(e.getMessage());
+    }
+  }
+
+  @Override
+  public void visitPackedEnum(Field field, int[] values, int from, int to) {
+    try {
+      encoder.writeFieldName(field.jsonName());
+      encoder.writeStartArray();
+      for (int i = from;i < to;i++) {
+        writeEnum(field, values[i]);
+      }
+      encoder.writeEndArray();
+    } catch (IOException e) {
+      throw new EncodeException(e.getMessage());
+    }
+  }
+
+  @Override
+  public void visitPackedInt64(Field field, long[] values, int from, int to) {
+    try {
+      encoder.writeFieldName(field.jsonName());
+      encoder.writeStartArray();
+      for (int i = from;i < to;i++) {
+        writeInt64(values[i]);
+      }
+      encoder.writeEndArray();
+    } catch (IOException e) {
+      throw new EncodeException(e.getMessage());
+    }
+  }
+
+  @Override
+  public void visitPackedUInt64(Field field, long[] values, int from, int to) {
+    try {
+      encoder.writeFieldName(field.jsonName());
+      encoder.writeStartArray();
+      for (int i = from;i < to;i++) {
+        writeUInt64(values[i]);
+      }
+      encoder.writeEndArray();
+    } catch (IOException e) {
+      throw new EncodeException(e.getMessage());
+    }
+  }
+
+  @Override
+  public void visitPackedSInt64(Field field, long[] values, int from, int to) {
+    try {
+      encoder.writeFieldName(field.jsonName());
+      encoder.writeStartArray();
+      for (int i = from;i < to;i++) {
+        writeSInt64(values[i]);
+      }
+      encoder.writeEndArray();
+    } catch (IOException e) {
+      throw new EncodeException(e.getMessage());
+    }
+  }
+
+  @Override
+  public void visitPackedBool(Field field, boolean[] values, int from, int to) {
+    try {
+      encoder.writeFieldName(field.jsonName());
+      encoder.writeStartArray();
+      for (int i = from;i < to;i++) {
+        writeBool(values[i]);
+      }
+      encoder.writeEndArray();
+    } catch (IOException e) {
+      throw new EncodeException(e.getMessage());
+    }
+  }
+
+  @Override
+  public void visitPackedDouble(Field field, double[] values, int from, int to) {
+    try {
+      encoder.writeFieldName(field.jsonName());
+      encoder.writeStartArray();
+      for (int i = from;i < to;i++) {
+        writeDouble(values[i]);
+      }
+      encoder.writeEndArray();
+    } catch (IOException e) {
+      throw new EncodeException(e.getMessage());
+    }
+  }
+
+  @Override
+  public void visitPackedFixed64(Field field, long[] values, int from, int to) {
+    try {
+      encoder.writeFieldName(field.jsonName());
+      encoder.writeStartArray();
+      for (int i = from;i < to;i++) {
+        writeFixed64(values[i]);
+      }
+      encoder.writeEndArray();
+    } catch (IOException e) {
+      throw new EncodeException(e.getMessage());
+    }
+  }
+
+  @Override
+  public void visitPackedSFixed64(Field field, long[] values, int from, int to) {
+    try {
+      encoder.writeFieldName(field.jsonName());
+      encoder.writeStartArray();
+      for (int i = from;i < to;i++) {
+        writeSFixed64(values[i]);
+      }
+      encoder.writeEndArray();
+    } catch (IOException e) {
+      throw new EncodeException(e.getMessage());
+    }
+  }
+
+  @Override
+  public void visitPackedFloat(Field field, float[] values, int from, int to) {
+    try {
+      encoder.writeFieldName(field.jsonName());
+      encoder.writeStartArray();
+      for (int i = from;i < to;i++) {
+        writeFloat(values[i]);
+      }
+      encoder.writeEndArray();
+    } catch (IOException e) {
+      throw new EncodeException(e.getMessage());
+    }
+  }
+
+  @Override
+  public void visitPackedFixed32(Field field, int[] values, int from, int to) {
+    try {
+      encoder.writeFieldName(field.jsonName());
+      encoder.writeStartArray();
+      for (int i = from;i < to;i++) {
+        writeFixed32(values[i]);
+      }
+      encoder.writeEndArray();
+    } catch (IOException e) {
+      throw new EncodeException(e.getMessage());
+    }
+  }
+
+  @Override
+  public void visitPackedSFixed32(Field field, int[] values, int from, int to) {
+    try {
+      encoder.writeFieldName(field.jsonName());
+      encoder.writeStartArray();
+      for (int i = from;i < to;i++) {
+        writeSFixed32(values[i]);
+      }
+      encoder.writeEndArray();
+    } catch (IOException e) {
+      throw new EncodeException(e.getMessage());
+    }
+  }
+
   private void writeBytes(byte[] bytes) throws IOException {
     encoder.writeBinary(bytes);
   }
@@ -17,7 +17,10 @@
 package io.vertx.protobuf.core.json.jackson;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.UTF8JsonGenerator;
+import io.vertx.protobuf.core.DecodeException;
 import io.vertx.protobuf.core.EncodeException;
+import io.vertx.protobuf.core.Utf8String;
 import io.vertx.protobuf.core.json.JsonEncoder;
 
 import java.io.IOException;
@@ -132,6 +135,28 @@ public class JacksonJsonEncoder implements JsonEncoder {
     }
   }
 
+  /**
+   * Write the string bytes directly when the generator encodes to UTF-8 bytes, otherwise the string is decoded.
+   *
+   * @throws DecodeException when the bytes are not valid UTF-8
+   */
+  @Override
+  public void writeString(Utf8String s) {
+    try {
+      if (generator instanceof UTF8JsonGenerator) {
+        // The generator copies the bytes as is, invalid bytes would produce invalid JSON
+        if (!s.isValid()) {
+          throw new DecodeException("Invalid UTF-8 string");
+        }
+        generator.writeUTF8String(s.array(), s.offset(), s.length());
+      } else {
+        generator.writeString(s.toString());
+      }
+    } catch (IOException e) {
+      throw new EncodeException(e);
+    }
+  }
+
   public void writeNull() {
     try {
       generator.writeNull();
@@ -16,10 +16,15 @@ module io.vertx.protobuf.core {
   // Won't work without but it should be capable of
   requires static com.fasterxml.jackson.core;
 
+  // Only needed for Vert.x buffer support
+  requires static io.vertx.core;
+  requires static io.netty.buffer;
+
   exports io.vertx.protobuf.core.json;
   exports io.vertx.protobuf.well_known_types;
   exports io.vertx.protobuf.core.interop;
   exports io.vertx.protobuf.core.json.jackson;
+  exports io.vertx.protobuf.core.buffer;
   exports io.vertx.protobuf.core;
 
 }
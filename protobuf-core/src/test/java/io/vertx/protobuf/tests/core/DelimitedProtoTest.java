@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.tests.core;
+
+import io.vertx.protobuf.core.DecodeException;
+import io.vertx.protobuf.core.DelimitedProtoReader;
+import io.vertx.protobuf.core.DelimitedProtoWriter;
+import io.vertx.protobuf.core.ProtobufReader;
+import io.vertx.protobuf.schema.DefaultMessageType;
+import io.vertx.protobuf.schema.ScalarType;
+import io.vertx.protobuf.tests.core.support.basic.MessageLiteral;
+import io.vertx.protobuf.tests.core.support.basic.TestProto;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DelimitedProtoTest {
+
+  private static List<TestProto.SimpleMessage> records() {
+    List<TestProto.SimpleMessage> records = new ArrayList<>();
+    records.add(TestProto.SimpleMessage.getDefaultInstance());
+    for (int i = 0;i < 10;i++) {
+      records.add(TestProto.SimpleMessage.newBuilder()
+        .setStringField("record-" + i)
+        .setInt32Field(i)
+        .build());
+    }
+    // Larger than the default buffer size
+    records.add(TestProto.SimpleMessage.newBuilder()
+      .setStringField("x".repeat(20_000))
+      .build());
+    records.add(TestProto.SimpleMessage.newBuilder().setInt64Field(4).build());
+    return records;
+  }
+
+  private static byte[] delimited(List<TestProto.SimpleMessage> records) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    for (TestProto.SimpleMessage record : records) {
+      record.writeDelimitedTo(baos);
+    }
+    return baos.toByteArray();
+  }
+
+  private static void assertRecords(List<TestProto.SimpleMessage> expected, DelimitedProtoReader reader) {
+    for (TestProto.SimpleMessage record : expected) {
+      assertTrue(reader.next());
+      RecordingVisitor visitor = new RecordingVisitor();
+      ProtobufReader.parse(MessageLiteral.SimpleMessage, visitor, record.toByteArray());
+      RecordingVisitor.Checker checker = visitor.checker();
+      reader.accept(checker);
+      assertTrue(checker.isEmpty());
+    }
+    assertFalse(reader.next());
+  }
+
+  @Test
+  public void testReadByteArray() throws Exception {
+    List<TestProto.SimpleMessage> records = records();
+    byte[] bytes = delimited(records);
+    assertRecords(records, new DelimitedProtoReader(MessageLiteral.SimpleMessage, bytes));
+  }
+
+  @Test
+  public void testReadInputStream() throws Exception {
+    List<TestProto.SimpleMessage> records = records();
+    byte[] bytes = delimited(records);
+    // Deliver the input a few bytes at a time
+    InputStream in = new FilterInputStream(new ByteArrayInputStream(bytes)) {
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        return super.read(b, off, Math.min(len, 3));
+      }
+    };
+    assertRecords(records, new DelimitedProtoReader(MessageLiteral.SimpleMessage, in));
+  }
+
+  @Test
+  public void testReadChannel() throws Exception {
+    List<TestProto.SimpleMessage> records = records();
+    byte[] bytes = delimited(records);
+    assertRecords(records, new DelimitedProtoReader(MessageLiteral.SimpleMessage, Channels.newChannel(new ByteArrayInputStream(bytes))));
+  }
+
+  @Test
+  public void testReadTruncated() throws Exception {
+    byte[] bytes = delimited(records());
+    DelimitedProtoReader reader = new DelimitedProtoReader(MessageLiteral.SimpleMessage, new ByteArrayInputStream(bytes, 0, bytes.length - 1));
+    try {
+      while (reader.next()) {
+        reader.accept(new RecordingVisitor());
+      }
+      fail();
+    } catch (DecodeException expected) {
+    }
+  }
+
+  @Test
+  public void testReadMaxRecordSize() throws Exception {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    msg.addField(1, ScalarType.BYTES);
+    // A record claiming 1 GB followed by a few bytes
+    byte[] bytes = { (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 4, 1 << 3 | 2, 0 };
+    DelimitedProtoReader reader = new DelimitedProtoReader(msg, new ByteArrayInputStream(bytes));
+    try {
+      reader.next();
+      fail();
+    } catch (DecodeException expected) {
+    }
+    bytes = new byte[] { 2, 1 << 3 | 2, 0, 3, 1 << 3 | 2, 1, 0 };
+    reader = new DelimitedProtoReader(msg, new ByteArrayInputStream(bytes)).maxRecordSize(2);
+    assertTrue(reader.next());
+    try {
+      reader.next();
+      fail();
+    } catch (DecodeException expected) {
+    }
+  }
+
+  @Test
+  public void testReadChannelWithoutData() throws Exception {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    ReadableByteChannel channel = new ReadableByteChannel() {
+      @Override
+      public int read(ByteBuffer dst) {
+        return 0;
+      }
+      @Override
+      public boolean isOpen() {
+        return true;
+      }
+      @Override
+      public void close() {
+      }
+    };
+    DelimitedProtoReader reader = new DelimitedProtoReader(msg, channel);
+    try {
+      reader.next();
+      fail();
+    } catch (DecodeException expected) {
+    }
+    try (Pipe.SourceChannel source = Pipe.open().source()) {
+      source.configureBlocking(false);
+      try {
+        new DelimitedProtoReader(msg, source);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void testWrite() throws Exception {
+    List<TestProto.SimpleMessage> records = records();
+    List<RecordingVisitor> streams = new ArrayList<>();
+    for (TestProto.SimpleMessage record : records) {
+      RecordingVisitor visitor = new RecordingVisitor();
+      ProtobufReader.parse(MessageLiteral.SimpleMessage, visitor, record.toByteArray());
+      streams.add(visitor);
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    DelimitedProtoWriter writer = new DelimitedProtoWriter(out);
+    for (RecordingVisitor stream : streams) {
+      writer.write(stream::apply);
+    }
+    assertArrayEquals(delimited(records), out.toByteArray());
+    out.reset();
+    writer = new DelimitedProtoWriter(Channels.newChannel(out));
+    for (RecordingVisitor stream : streams) {
+      writer.write(stream::apply);
+    }
+    assertArrayEquals(delimited(records), out.toByteArray());
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.tests.core;
+
+import com.google.protobuf.CodedOutputStream;
+import io.vertx.protobuf.core.DecodeException;
+import io.vertx.protobuf.core.FieldIndex;
+import io.vertx.protobuf.core.ProtobufReader;
+import io.vertx.protobuf.schema.DefaultField;
+import io.vertx.protobuf.schema.DefaultMessageType;
+import io.vertx.protobuf.schema.ScalarType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FieldIndexTest {
+
+  private final DefaultMessageType header = new DefaultMessageType("Header");
+  private final DefaultField headerId = header.addField(1, "id", ScalarType.SINT64);
+  private final DefaultField headerName = header.addField(2, "name", ScalarType.STRING);
+  private final DefaultMessageType envelope = new DefaultMessageType("Envelope");
+  private final DefaultField envelopeHeader = envelope.addField(1, "header", header);
+  private final DefaultField envelopeCount = envelope.addField(2, "count", ScalarType.FIXED32);
+  private final DefaultField envelopeWeight = envelope.addField(3, "weight", ScalarType.DOUBLE);
+  private final DefaultField envelopeFlag = envelope.addField(4, "flag", ScalarType.BOOL);
+  private final DefaultField envelopeRatio = envelope.addField(5, "ratio", ScalarType.FLOAT);
+  private final DefaultField envelopeTags = envelope.addField(f -> f.number(6).name("tags").type(ScalarType.INT32).repeated(true).packed(true));
+  private final DefaultField envelopeBody = envelope.addField(1000, "body", ScalarType.BYTES);
+  private final DefaultField envelopeMissing = envelope.addField(7, "missing", ScalarType.STRING);
+
+  private byte[] encode() throws IOException {
+    byte[] data = new byte[256];
+    CodedOutputStream out = CodedOutputStream.newInstance(data);
+    out.writeTag(1, 2);
+    out.writeUInt32NoTag(8);
+    out.writeSInt64(1, -300);
+    out.writeString(2, "foo");
+    out.writeFixed32(2, 4);
+    out.writeDouble(3, 0.5);
+    out.writeBool(4, true);
+    out.writeFloat(5, 1.5f);
+    out.writeTag(6, 2);
+    out.writeUInt32NoTag(2);
+    out.writeInt32NoTag(1);
+    out.writeInt32NoTag(2);
+    out.writeByteArray(1000, new byte[] { 1, 2, 3 });
+    out.writeInt32(6, 3);
+    // Last occurrence wins
+    out.writeFixed32(2, 5);
+    out.flush();
+    return Arrays.copyOf(data, out.getTotalBytesWritten());
+  }
+
+  @Test
+  public void testGetFields() throws IOException {
+    FieldIndex index = FieldIndex.of(envelope, encode());
+    assertEquals(5, index.getInt(envelopeCount));
+    assertEquals(2, index.count(envelopeCount));
+    assertEquals(0.5, index.getDouble(envelopeWeight), 0d);
+    assertTrue(index.getBoolean(envelopeFlag));
+    assertEquals(1.5f, index.getFloat(envelopeRatio), 0f);
+    assertArrayEquals(new byte[] { 1, 2, 3 }, index.getBytes(envelopeBody));
+    assertFalse(index.has(envelopeMissing));
+    assertEquals("", index.getString(envelopeMissing));
+    assertEquals(0, index.count(envelopeMissing));
+  }
+
+  @Test
+  public void testNestedIndex() throws IOException {
+    FieldIndex index = FieldIndex.of(envelope, encode());
+    FieldIndex nested = index.index(envelopeHeader);
+    assertSame(header, nested.type());
+    assertSame(nested, index.index(envelopeHeader));
+    assertEquals(-300, nested.getLong(headerId));
+    assertEquals("foo", nested.getString(headerName));
+    assertEquals("foo", nested.getUtf8String(headerName).toString());
+    RecordingVisitor visitor = new RecordingVisitor();
+    visitor.init(header);
+    ProtobufReader.parse(header, visitor, index.getMessage(envelopeHeader));
+    visitor.destroy();
+  }
+
+  @Test
+  public void testMergedNestedIndex() throws IOException {
+    byte[] data = new byte[64];
+    CodedOutputStream out = CodedOutputStream.newInstance(data);
+    out.writeTag(1, 2);
+    out.writeUInt32NoTag(7);
+    out.writeSInt64(1, 4);
+    out.writeString(2, "foo");
+    out.writeFixed32(2, 3);
+    out.writeTag(1, 2);
+    out.writeUInt32NoTag(2);
+    out.writeSInt64(1, 5);
+    out.flush();
+    data = Arrays.copyOf(data, out.getTotalBytesWritten());
+    FieldIndex index = FieldIndex.of(envelope, data);
+    // Occurrences are merged like when parsing
+    FieldIndex nested = index.index(envelopeHeader);
+    assertEquals(5, nested.getLong(headerId));
+    assertEquals("foo", nested.getString(headerName));
+    assertEquals(2, nested.count(headerId));
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(header);
+    expected.visitSInt64(headerId, 4);
+    expected.visitString(headerName, "foo");
+    expected.visitSInt64(headerId, 5);
+    expected.destroy();
+    RecordingVisitor.Checker checker = expected.checker();
+    ProtobufReader.parse(header, checker, index.getMessage(envelopeHeader));
+    assertTrue(checker.isEmpty());
+  }
+
+  @Test
+  public void testVisitRepeated() throws IOException {
+    FieldIndex index = FieldIndex.of(envelope, encode());
+    RecordingVisitor visitor = new RecordingVisitor();
+    index.visit(envelopeTags, visitor);
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.enterPacked(envelopeTags);
+    expected.visitInt32(envelopeTags, 1);
+    expected.visitInt32(envelopeTags, 2);
+    expected.leavePacked(envelopeTags);
+    expected.visitInt32(envelopeTags, 3);
+    RecordingVisitor.Checker checker = expected.checker();
+    visitor.apply(checker);
+    assertTrue(checker.isEmpty());
+  }
+
+  @Test
+  public void testInvalidAccess() throws IOException {
+    FieldIndex index = FieldIndex.of(envelope, encode());
+    try {
+      index.getInt(envelopeWeight);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      index.index(envelopeCount);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    // Wire type mismatch
+    FieldIndex mismatch = FieldIndex.of(envelope, new byte[] { 3 << 3, 1 });
+    try {
+      mismatch.getDouble(envelopeWeight);
+      fail();
+    } catch (DecodeException expected) {
+    }
+  }
+
+  @Test
+  public void testInvalidMessage() {
+    byte[][] inputs = {
+      { 1 << 3 | 2, 4, 0 },
+      { 2 << 3 | 5, 0, 0 },
+      { 2 << 3, (byte) 0x80 },
+      { 0, 0 },
+    };
+    for (byte[] input : inputs) {
+      try {
+        FieldIndex.of(envelope, input);
+        fail();
+      } catch (DecodeException expected) {
+      }
+    }
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.tests.core;
+
+import com.google.protobuf.CodedOutputStream;
+import io.vertx.protobuf.core.DecodeException;
+import io.vertx.protobuf.core.FieldProjection;
+import io.vertx.protobuf.core.ProtobufReader;
+import io.vertx.protobuf.schema.DefaultField;
+import io.vertx.protobuf.schema.DefaultMessageType;
+import io.vertx.protobuf.schema.ScalarType;
+import io.vertx.protobuf.well_known_types.FieldMask;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FieldProjectionTest {
+
+  private final DefaultMessageType header = new DefaultMessageType("Header");
+  private final DefaultField headerId = header.addField(1, "id", ScalarType.INT64);
+  private final DefaultField headerName = header.addField(2, "name", ScalarType.STRING);
+  private final DefaultMessageType envelope = new DefaultMessageType("Envelope");
+  private final DefaultField envelopeHeader = envelope.addField(1, "header", header);
+  private final DefaultField envelopeCount = envelope.addField(2, "count", ScalarType.FIXED32);
+  private final DefaultField envelopeWeight = envelope.addField(3, "weight", ScalarType.DOUBLE);
+  private final DefaultField envelopeBody = envelope.addField(1000, "body", ScalarType.BYTES);
+  private final DefaultField envelopeTags = envelope.addField(f -> f.number(5).name("tags").type(ScalarType.INT32).repeated(true).packed(true));
+
+  private byte[] encode() throws IOException {
+    byte[] data = new byte[256];
+    CodedOutputStream out = CodedOutputStream.newInstance(data);
+    out.writeTag(1, 2);
+    out.writeUInt32NoTag(8);
+    out.writeInt64(1, 300);
+    out.writeString(2, "foo");
+    out.writeFixed32(2, 4);
+    out.writeDouble(3, 0.5);
+    out.writeByteArray(1000, new byte[] { 1, 2, 3 });
+    out.writeTag(5, 2);
+    out.writeUInt32NoTag(2);
+    out.writeInt32NoTag(1);
+    out.writeInt32NoTag(2);
+    out.writeInt32(4, 12);
+    out.flush();
+    return Arrays.copyOf(data, out.getTotalBytesWritten());
+  }
+
+  @Test
+  public void testProjectFields() throws IOException {
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(envelope);
+    expected.enter(envelopeHeader);
+    expected.visitString(headerName, "foo");
+    expected.leave(envelopeHeader);
+    expected.visitDouble(envelopeWeight, 0.5);
+    expected.destroy();
+    assertProjection(expected, FieldProjection.of(envelope, envelopeHeader, headerName, envelopeWeight));
+  }
+
+  @Test
+  public void testProjectWholeMessage() throws IOException {
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(envelope);
+    expected.enter(envelopeHeader);
+    expected.visitInt64(headerId, 300);
+    expected.visitString(headerName, "foo");
+    expected.leave(envelopeHeader);
+    expected.visitBytes(envelopeBody, new byte[] { 1, 2, 3 });
+    expected.destroy();
+    assertProjection(expected, FieldProjection.of(envelope, envelopeHeader, envelopeBody));
+  }
+
+  @Test
+  public void testProjectPaths() throws IOException {
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(envelope);
+    expected.enter(envelopeHeader);
+    expected.visitInt64(headerId, 300);
+    expected.leave(envelopeHeader);
+    expected.visitFixed32(envelopeCount, 4);
+    expected.enterPacked(envelopeTags);
+    expected.visitInt32(envelopeTags, 1);
+    expected.visitInt32(envelopeTags, 2);
+    expected.leavePacked(envelopeTags);
+    expected.destroy();
+    assertProjection(expected, FieldProjection.of(envelope, new FieldMask().setPaths(List.of("header.id", "count", "tags"))));
+  }
+
+  @Test
+  public void testProjectPathPrefix() throws IOException {
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(envelope);
+    expected.enter(envelopeHeader);
+    expected.visitInt64(headerId, 300);
+    expected.visitString(headerName, "foo");
+    expected.leave(envelopeHeader);
+    expected.destroy();
+    assertProjection(expected, FieldProjection.ofPaths(envelope, List.of("header.id", "header")));
+  }
+
+  @Test
+  public void testProjectNothing() throws IOException {
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(envelope);
+    expected.destroy();
+    assertProjection(expected, FieldProjection.ofPaths(envelope, List.of()));
+  }
+
+  @Test
+  public void testInvalidPath() {
+    try {
+      FieldProjection.ofPaths(envelope, List.of("header.unknown"));
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      FieldProjection.ofPaths(envelope, List.of("count.value"));
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void testSkipTruncated() {
+    FieldProjection projection = FieldProjection.of(envelope, envelopeWeight);
+    byte[][] inputs = {
+      { 2 << 3 | 5, 0, 0, 0 },
+      { 1 << 3 | 2, 4, 0 },
+      { 2 << 3, (byte) 0x80 },
+    };
+    for (byte[] input : inputs) {
+      try {
+        ProtobufReader.parse(envelope, new RecordingVisitor(), input, projection);
+        fail();
+      } catch (DecodeException expected) {
+      }
+    }
+  }
+
+  private void assertProjection(RecordingVisitor expected, FieldProjection projection) throws IOException {
+    RecordingVisitor.Checker checker = expected.checker();
+    ProtobufReader.parse(envelope, checker, encode(), projection);
+    assertTrue(checker.isEmpty());
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.tests.core;
+
+import com.google.protobuf.MessageLite;
+import io.vertx.protobuf.core.IncrementalProtobufReader;
+import io.vertx.protobuf.schema.MessageType;
+
+import static org.junit.Assert.*;
+
+public class IncrementalDataTypeTest extends DataTypeTestBase {
+
+  protected void testDataType(RecordingVisitor visitor, MessageType messageType, MessageLite expected) throws Exception {
+    byte[] bytes = expected.toByteArray();
+    RecordingVisitor.Checker checker = visitor.checker();
+    IncrementalProtobufReader reader = new IncrementalProtobufReader(messageType, checker);
+    for (byte b : bytes) {
+      reader.feed(new byte[] { b });
+    }
+    reader.end();
+    assertTrue(checker.isEmpty());
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.tests.core;
+
+import com.google.protobuf.ByteString;
+import com.sun.management.ThreadMXBean;
+import io.vertx.protobuf.core.DecodeException;
+import io.vertx.protobuf.core.IncrementalProtobufReader;
+import io.vertx.protobuf.core.ProtobufReader;
+import io.vertx.protobuf.core.ReaderLimits;
+import io.vertx.protobuf.schema.DefaultMessageType;
+import io.vertx.protobuf.schema.MessageType;
+import io.vertx.protobuf.schema.ScalarType;
+import io.vertx.protobuf.tests.core.support.basic.MessageLiteral;
+import io.vertx.protobuf.tests.core.support.basic.TestProto;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class IncrementalProtobufReaderTest {
+
+  private static void assertChunked(MessageType type, byte[] bytes) {
+    RecordingVisitor visitor = new RecordingVisitor();
+    ProtobufReader.parse(type, visitor, bytes);
+    for (int chunkSize = 1;chunkSize <= bytes.length;chunkSize++) {
+      RecordingVisitor.Checker checker = visitor.checker();
+      IncrementalProtobufReader reader = new IncrementalProtobufReader(type, checker);
+      for (int from = 0;from < bytes.length;from += chunkSize) {
+        reader.feed(bytes, from, Math.min(chunkSize, bytes.length - from));
+      }
+      reader.end();
+      assertTrue(checker.isEmpty());
+      assertEquals(bytes.length, reader.position());
+    }
+  }
+
+  @Test
+  public void testSimpleMessage() {
+    byte[] bytes = TestProto.SimpleMessage.newBuilder()
+      .setStringField("the-string-é")
+      .setBytesField(ByteString.copyFromUtf8("the-bytes"))
+      .setInt32Field(-1234)
+      .setInt64Field(Long.MAX_VALUE)
+      .addStringListField("")
+      .addStringListField("s2")
+      .putMapStringString("k", "v")
+      .putMapStringInt32("k", 4)
+      .build()
+      .toByteArray();
+    assertChunked(MessageLiteral.SimpleMessage, bytes);
+  }
+
+  @Test
+  public void testRecursive() {
+    byte[] bytes = TestProto.Recursive.newBuilder()
+      .setString("level-0")
+      .addEmbedded(TestProto.Recursive.newBuilder()
+        .setString("level-1")
+        .addEmbedded(TestProto.Recursive.newBuilder().setString("level-2"))
+        .addEmbedded(TestProto.Recursive.getDefaultInstance()))
+      .addEmbedded(TestProto.Recursive.newBuilder()
+        .addEmbedded(TestProto.Recursive.newBuilder()
+          .addEmbedded(TestProto.Recursive.newBuilder()
+            .addEmbedded(TestProto.Recursive.newBuilder().setString("level-4")))))
+      .build()
+      .toByteArray();
+    assertChunked(MessageLiteral.Recursive, bytes);
+  }
+
+  @Test
+  public void testDirectByteBuffer() {
+    byte[] bytes = TestProto.SimpleMessage.newBuilder()
+      .setStringField("the-string")
+      .setInt32Field(4)
+      .build()
+      .toByteArray();
+    RecordingVisitor visitor = new RecordingVisitor();
+    ProtobufReader.parse(MessageLiteral.SimpleMessage, visitor, bytes);
+    RecordingVisitor.Checker checker = visitor.checker();
+    IncrementalProtobufReader reader = new IncrementalProtobufReader(MessageLiteral.SimpleMessage, checker);
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes).flip();
+    reader.feed(direct);
+    reader.end();
+    assertTrue(checker.isEmpty());
+  }
+
+  @Test
+  public void testTruncated() {
+    byte[] bytes = TestProto.Recursive.newBuilder()
+      .addEmbedded(TestProto.Recursive.newBuilder().setString("the-string"))
+      .build()
+      .toByteArray();
+    for (int len = 1;len < bytes.length;len++) {
+      IncrementalProtobufReader reader = new IncrementalProtobufReader(MessageLiteral.Recursive, new RecordingVisitor());
+      reader.feed(bytes, 0, len);
+      try {
+        reader.end();
+        fail();
+      } catch (DecodeException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidLength() {
+    // Embedded message declaring 1 byte containing a 3 bytes string field
+    byte[] bytes = { 2 << 3 | 2, 1, 1 << 3 | 2, 1, 'a' };
+    IncrementalProtobufReader reader = new IncrementalProtobufReader(MessageLiteral.Recursive, new RecordingVisitor());
+    try {
+      reader.feed(bytes);
+      fail();
+    } catch (DecodeException expected) {
+    }
+  }
+
+  @Test
+  public void testWireTypeMismatch() {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    msg.addField(1, "f1", ScalarType.FIXED32);
+    msg.addField(2, "f2", ScalarType.STRING);
+    msg.addField(3, "f3", msg);
+    byte[][] inputs = {
+      { 1 << 3, 0 },
+      { 1 << 3 | 1, 0, 0, 0, 0, 0, 0, 0, 0 },
+      { 2 << 3, 0 },
+      { 3 << 3 | 5, 0, 0, 0, 0 },
+    };
+    for (byte[] input : inputs) {
+      IncrementalProtobufReader reader = new IncrementalProtobufReader(msg, new RecordingVisitor());
+      try {
+        reader.feed(input);
+        fail();
+      } catch (DecodeException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void testMaxDepth() {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    msg.addField(1, msg);
+    byte[] bytes = { 1 << 3 | 2, 4, 1 << 3 | 2, 2, 1 << 3 | 2, 0 };
+    IncrementalProtobufReader reader = new IncrementalProtobufReader(msg, new RecordingVisitor()).maxDepth(3);
+    reader.feed(bytes);
+    reader.end();
+    reader = new IncrementalProtobufReader(msg, new RecordingVisitor()).maxDepth(2);
+    try {
+      reader.feed(bytes);
+      fail();
+    } catch (DecodeException expected) {
+    }
+  }
+
+  @Test
+  public void testHostileLength() {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    msg.addField(1, ScalarType.BYTES);
+    msg.addField(2, ScalarType.STRING);
+    byte[][] prefixes = {
+      { 1 << 3 | 2, -1, -1, -1, -1, 7 },
+      { 2 << 3 | 2, -1, -1, -1, -1, 7 },
+      { 3 << 3 | 2, -1, -1, -1, -1, 7 },
+    };
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    boolean measured = bean instanceof ThreadMXBean && ((ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+      && ((ThreadMXBean) bean).isThreadAllocatedMemoryEnabled();
+    for (byte[] prefix : prefixes) {
+      long threadId = Thread.currentThread().getId();
+      long before = measured ? ((ThreadMXBean) bean).getThreadAllocatedBytes(threadId) : 0L;
+      IncrementalProtobufReader reader = new IncrementalProtobufReader(msg, new RecordingVisitor());
+      reader.feed(prefix);
+      reader.feed(new byte[1024]);
+      try {
+        reader.end();
+        fail();
+      } catch (DecodeException expected) {
+      }
+      if (measured) {
+        // Only the received bytes are buffered
+        long allocated = ((ThreadMXBean) bean).getThreadAllocatedBytes(threadId) - before;
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1024 * 1024);
+      }
+    }
+  }
+
+  @Test
+  public void testLimits() {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    msg.addField(1, ScalarType.BYTES);
+    msg.addField(2, msg);
+    byte[] hostile = { 1 << 3 | 2, -1, -1, -1, -1, 7 };
+    try {
+      new IncrementalProtobufReader(msg, new RecordingVisitor()).maxFieldLength(1024).feed(hostile);
+      fail();
+    } catch (DecodeException expected) {
+    }
+    try {
+      new IncrementalProtobufReader(msg, new RecordingVisitor()).limits(new ReaderLimits().maxAllocatedBytes(1024)).feed(hostile);
+      fail();
+    } catch (DecodeException expected) {
+    }
+    // Two bytes fields of 3 bytes in an embedded message of 10 bytes
+    byte[] bytes = { 2 << 3 | 2, 10, 1 << 3 | 2, 3, 'a', 'b', 'c', 1 << 3 | 2, 3, 'd', 'e', 'f' };
+    IncrementalProtobufReader reader = new IncrementalProtobufReader(msg, new RecordingVisitor())
+      .limits(new ReaderLimits().maxMessageSize(12).maxFieldLength(10).maxAllocatedBytes(6));
+    reader.feed(bytes);
+    reader.end();
+    ReaderLimits[] exceeded = {
+      new ReaderLimits().maxMessageSize(11),
+      new ReaderLimits().maxFieldLength(9),
+      new ReaderLimits().maxAllocatedBytes(5),
+    };
+    for (ReaderLimits limits : exceeded) {
+      reader = new IncrementalProtobufReader(msg, new RecordingVisitor()).limits(limits);
+      try {
+        reader.feed(bytes);
+        fail();
+      } catch (DecodeException expected) {
+      }
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.tests.core;
+
+import io.vertx.protobuf.core.DecodeException;
+import io.vertx.protobuf.core.MappedDelimitedProtoReader;
+import io.vertx.protobuf.core.ProtobufReader;
+import io.vertx.protobuf.tests.core.support.basic.MessageLiteral;
+import io.vertx.protobuf.tests.core.support.basic.TestProto;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class MappedDelimitedProtoReaderTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private List<TestProto.SimpleMessage> records;
+  private File file;
+
+  private void write(int num) throws Exception {
+    records = new ArrayList<>();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    for (int i = 0;i < num;i++) {
+      TestProto.SimpleMessage record = TestProto.SimpleMessage.newBuilder()
+        .setStringField("record-" + i)
+        .setInt32Field(i)
+        .build();
+      records.add(record);
+      record.writeDelimitedTo(baos);
+    }
+    file = folder.newFile();
+    Files.write(file.toPath(), baos.toByteArray());
+  }
+
+  private void assertRecord(MappedDelimitedProtoReader reader, int index) {
+    RecordingVisitor visitor = new RecordingVisitor();
+    ProtobufReader.parse(MessageLiteral.SimpleMessage, visitor, records.get(index).toByteArray());
+    RecordingVisitor.Checker checker = visitor.checker();
+    reader.accept(index, checker);
+    assertTrue(checker.isEmpty());
+  }
+
+  @Test
+  public void testRead() throws Exception {
+    write(100);
+    // Small segments to map the file in several pieces
+    try (MappedDelimitedProtoReader reader = MappedDelimitedProtoReader.open(file.toPath(), MessageLiteral.SimpleMessage, 64)) {
+      assertEquals(100, reader.count());
+      for (int i = 0;i < 100;i++) {
+        assertEquals(records.get(i).getSerializedSize(), reader.length(i));
+        assertRecord(reader, i);
+      }
+    }
+  }
+
+  @Test
+  public void testSplit() throws Exception {
+    write(1000);
+    try (MappedDelimitedProtoReader reader = MappedDelimitedProtoReader.open(file.toPath(), MessageLiteral.SimpleMessage, 4096)) {
+      int[] boundaries = reader.split(4);
+      assertEquals(5, boundaries.length);
+      assertEquals(0, boundaries[0]);
+      assertEquals(1000, boundaries[4]);
+      List<CompletableFuture<List<Integer>>> futures = new ArrayList<>();
+      for (int i = 0;i < boundaries.length - 1;i++) {
+        int from = boundaries[i];
+        int to = boundaries[i + 1];
+        futures.add(CompletableFuture.supplyAsync(() -> {
+          List<Integer> values = new ArrayList<>();
+          reader.forEach(from, to, new RecordingVisitor() {
+            @Override
+            public void visitInt32(io.vertx.protobuf.schema.Field field, int v) {
+              values.add(v);
+            }
+          });
+          return values;
+        }));
+      }
+      List<Integer> values = new ArrayList<>();
+      for (CompletableFuture<List<Integer>> future : futures) {
+        values.addAll(future.get());
+      }
+      // Record 0 has a default int32 value which is not encoded
+      assertEquals(999, values.size());
+      for (int i = 0;i < values.size();i++) {
+        assertEquals(i + 1, (int) values.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testSplitFewRecords() throws Exception {
+    write(2);
+    try (MappedDelimitedProtoReader reader = MappedDelimitedProtoReader.open(file.toPath(), MessageLiteral.SimpleMessage)) {
+      int[] boundaries = reader.split(8);
+      assertEquals(0, boundaries[0]);
+      assertEquals(2, boundaries[boundaries.length - 1]);
+      assertTrue(boundaries.length <= 3);
+    }
+  }
+
+  @Test
+  public void testTruncated() throws Exception {
+    write(10);
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+    try {
+      MappedDelimitedProtoReader.open(file.toPath(), MessageLiteral.SimpleMessage);
+      fail();
+    } catch (DecodeException expected) {
+    }
+  }
+
+  @Test
+  public void testRecordLargerThanSegment() throws Exception {
+    write(10);
+    try {
+      MappedDelimitedProtoReader.open(file.toPath(), MessageLiteral.SimpleMessage, 4);
+      fail();
+    } catch (DecodeException expected) {
+    }
+  }
+}
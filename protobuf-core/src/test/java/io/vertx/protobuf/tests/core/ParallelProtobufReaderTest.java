@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.tests.core;
+
+import com.google.protobuf.CodedOutputStream;
+import io.vertx.protobuf.core.DecodeException;
+import io.vertx.protobuf.core.ParallelProtobufReader;
+import io.vertx.protobuf.core.ReaderLimits;
+import io.vertx.protobuf.schema.DefaultField;
+import io.vertx.protobuf.schema.DefaultMessageType;
+import io.vertx.protobuf.schema.Field;
+import io.vertx.protobuf.schema.MessageType;
+import io.vertx.protobuf.schema.ScalarType;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelProtobufReaderTest {
+
+  private final DefaultMessageType item = new DefaultMessageType("Item");
+  private final DefaultField itemId = item.addField(1, "id", ScalarType.INT64);
+  private final DefaultField itemName = item.addField(2, "name", ScalarType.STRING);
+  private final DefaultMessageType batch = new DefaultMessageType("Batch");
+  private final DefaultField batchName = batch.addField(1, "name", ScalarType.STRING);
+  private final DefaultField batchItems = batch.addField(f -> f.number(2).name("items").type(item).repeated(true));
+
+  private byte[] batch(int count) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    CodedOutputStream out = CodedOutputStream.newInstance(baos);
+    out.writeString(1, "the-batch");
+    for (int i = 0;i < count;i++) {
+      ByteArrayOutputStream elt = new ByteArrayOutputStream();
+      CodedOutputStream eltOut = CodedOutputStream.newInstance(elt);
+      eltOut.writeInt64(1, i);
+      eltOut.writeString(2, "item-" + i);
+      eltOut.flush();
+      out.writeByteArray(2, elt.toByteArray());
+      if (i == count / 2) {
+        // Other fields are skipped
+        out.writeString(1, "other");
+        out.writeInt64(15, 4);
+      }
+    }
+    out.flush();
+    return baos.toByteArray();
+  }
+
+  private static class ItemCollector extends RecordingVisitor {
+    final List<Long> ids = new ArrayList<>();
+    final List<String> threads = new ArrayList<>();
+    int messages;
+    @Override
+    public void init(MessageType type) {
+      messages++;
+    }
+    @Override
+    public void visitInt64(Field field, long v) {
+      ids.add(v);
+    }
+    @Override
+    public void visitString(Field field, String s) {
+      assertEquals("item-" + ids.get(ids.size() - 1), s);
+    }
+    @Override
+    public void destroy() {
+    }
+  }
+
+  @Test
+  public void testParse() throws IOException {
+    int count = 10_000;
+    byte[] data = batch(count);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      List<ItemCollector> visitors = ParallelProtobufReader.parse(batch, batchItems, data, ItemCollector::new, pool, 1024);
+      assertTrue(visitors.size() > 1);
+      List<Long> ids = new ArrayList<>();
+      int messages = 0;
+      for (ItemCollector visitor : visitors) {
+        ids.addAll(visitor.ids);
+        messages += visitor.messages;
+      }
+      assertEquals(count, messages);
+      for (int i = 0;i < count;i++) {
+        assertEquals(i, (long) ids.get(i));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testParseLimits() throws IOException {
+    byte[] data = batch(10);
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    ParallelProtobufReader.parse(batch, batchItems, data, ItemCollector::new, pool, 16, new ReaderLimits().maxDepth(1).maxAllocatedBytes(60));
+    ReaderLimits[] limits = {
+      new ReaderLimits().maxMessageSize(data.length - 1),
+      new ReaderLimits().maxFieldLength(5),
+      new ReaderLimits().maxDepth(0),
+      new ReaderLimits().maxAllocatedBytes(59)
+    };
+    for (ReaderLimits limit : limits) {
+      try {
+        ParallelProtobufReader.parse(batch, batchItems, data, ItemCollector::new, pool, 16, limit);
+        fail();
+      } catch (DecodeException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void testParseSingleRange() throws IOException {
+    List<ItemCollector> visitors = ParallelProtobufReader.parse(batch, batchItems, batch(10), ItemCollector::new);
+    assertEquals(1, visitors.size());
+    assertEquals(10, visitors.get(0).ids.size());
+    assertEquals(0, ParallelProtobufReader.parse(batch, batchItems, batch(0), ItemCollector::new).size());
+  }
+
+  @Test
+  public void testInvalidField() {
+    try {
+      ParallelProtobufReader.parse(batch, batchName, new byte[0], ItemCollector::new);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      ParallelProtobufReader.parse(batch, itemId, new byte[0], ItemCollector::new);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void testInvalidInput() throws IOException {
+    byte[][] inputs = {
+      // Element past the end of the message
+      { 2 << 3 | 2, 4, 8, 1 },
+      // Wire type mismatch
+      { 2 << 3, 1 },
+      // Invalid element
+      { 2 << 3 | 2, 1, 8 },
+    };
+    for (byte[] input : inputs) {
+      try {
+        ParallelProtobufReader.parse(batch, batchItems, input, ItemCollector::new);
+        fail();
+      } catch (DecodeException expected) {
+      }
+    }
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.tests.core;
+
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+import io.vertx.protobuf.core.ProtoVisitor;
+import io.vertx.protobuf.core.ProtobufReader;
+import io.vertx.protobuf.core.ProtobufWriter;
+import io.vertx.protobuf.core.buffer.ProtobufBuffer;
+import io.vertx.protobuf.schema.DefaultField;
+import io.vertx.protobuf.schema.DefaultMessageType;
+import io.vertx.protobuf.schema.DefaultSchema;
+import io.vertx.protobuf.schema.ScalarType;
+import io.vertx.protobuf.tests.core.support.basic.MessageLiteral;
+import io.vertx.protobuf.tests.core.support.basic.TestProto;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+public class ProtobufBufferTest {
+
+  private static final byte[] SIMPLE_MESSAGE = TestProto.SimpleMessage.newBuilder()
+    .setStringField("the-string-é")
+    .setBytesField(ByteString.copyFromUtf8("the-bytes"))
+    .setInt32Field(-1234)
+    .setInt64Field(Long.MAX_VALUE)
+    .addStringListField("s1")
+    .addStringListField("s2")
+    .putMapStringString("k", "v")
+    .putMapStringInt32("k", 4)
+    .build()
+    .toByteArray();
+
+  private RecordingVisitor record() {
+    RecordingVisitor visitor = new RecordingVisitor();
+    ProtobufReader.parse(MessageLiteral.SimpleMessage, visitor, SIMPLE_MESSAGE);
+    return visitor;
+  }
+
+  @Test
+  public void testParseBuffer() {
+    RecordingVisitor visitor = record();
+    RecordingVisitor.Checker checker = visitor.checker();
+    ProtobufBuffer.parse(MessageLiteral.SimpleMessage, checker, Buffer.buffer(SIMPLE_MESSAGE));
+    assertTrue(checker.isEmpty());
+  }
+
+  @Test
+  public void testParseCompositeByteBuf() {
+    RecordingVisitor visitor = record();
+    for (int split = 0;split < SIMPLE_MESSAGE.length;split += 3) {
+      CompositeByteBuf composite = Unpooled.compositeBuffer();
+      composite.addComponent(true, Unpooled.wrappedBuffer(SIMPLE_MESSAGE, 0, split));
+      composite.addComponent(true, Unpooled.directBuffer().writeBytes(SIMPLE_MESSAGE, split, SIMPLE_MESSAGE.length - split));
+      RecordingVisitor.Checker checker = visitor.checker();
+      ProtobufBuffer.parse(MessageLiteral.SimpleMessage, checker, composite);
+      assertTrue(checker.isEmpty());
+      assertEquals(0, composite.readerIndex());
+      composite.release();
+    }
+  }
+
+  @Test
+  public void testEncodeToBuffer() {
+    RecordingVisitor visitor = record();
+    Buffer buffer = ProtobufBuffer.encodeToBuffer(visitor::apply);
+    assertArrayEquals(ProtobufWriter.encodeToByteArray(visitor::apply), buffer.getBytes());
+  }
+
+  @Test
+  public void testEncodeToByteBuf() {
+    RecordingVisitor visitor = record();
+    byte[] expected = ProtobufWriter.encodeToByteArray(visitor::apply);
+    ByteBuf buffer = Unpooled.directBuffer(4);
+    buffer.writeByte('A');
+    int written = ProtobufBuffer.encode(visitor::apply, buffer);
+    assertEquals(expected.length, written);
+    assertEquals(1 + expected.length, buffer.readableBytes());
+    assertEquals('A', buffer.readByte());
+    byte[] actual = new byte[written];
+    buffer.readBytes(actual);
+    assertArrayEquals(expected, actual);
+    buffer.release();
+  }
+
+  @Test
+  public void testEncodeToWriteStream() throws Exception {
+    DefaultSchema schema = new DefaultSchema();
+    DefaultMessageType msg = schema.of("msg");
+    DefaultField data = msg.addField(1, "data", ScalarType.BYTES);
+    byte[] bytes = new byte[1000];
+    Arrays.fill(bytes, (byte) 1);
+    Consumer<ProtoVisitor> stream = visitor -> {
+      visitor.init(msg);
+      visitor.visitBytes(data, bytes);
+      visitor.destroy();
+    };
+    byte[] expected = ProtobufWriter.encodeToByteArray(stream);
+    Vertx vertx = Vertx.vertx();
+    try {
+      SlowStream slow = new SlowStream(false);
+      CompletableFuture<Void> result = new CompletableFuture<>();
+      vertx.runOnContext(v -> ProtobufBuffer.encode(stream, slow, 16).onComplete(ar -> {
+        if (ar.succeeded()) {
+          result.complete(null);
+        } else {
+          result.completeExceptionally(ar.cause());
+        }
+      }));
+      result.get(10, TimeUnit.SECONDS);
+      assertArrayEquals(expected, slow.received.getBytes());
+      // Encoding waited for the writes to complete between chunks
+      assertTrue(slow.maxPendingSeen > 0);
+      assertTrue(slow.maxPendingSeen <= 4);
+      assertFalse(slow.handlerSet);
+    } finally {
+      vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void testEncodeToFailingWriteStream() throws Exception {
+    RecordingVisitor visitor = record();
+    Vertx vertx = Vertx.vertx();
+    try {
+      SlowStream failing = new SlowStream(true);
+      CompletableFuture<Throwable> result = new CompletableFuture<>();
+      vertx.runOnContext(v -> ProtobufBuffer.encode(visitor::apply, failing, 16).onComplete(ar -> result.complete(ar.cause())));
+      assertEquals("failed", result.get(10, TimeUnit.SECONDS).getMessage());
+    } finally {
+      vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void testEncodeToClosedWriteStream() throws Exception {
+    RecordingVisitor visitor = record();
+    Vertx vertx = Vertx.vertx();
+    try {
+      ClosingStream closing = new ClosingStream();
+      CompletableFuture<Throwable> result = new CompletableFuture<>();
+      vertx.runOnContext(v -> ProtobufBuffer.encode(visitor::apply, closing, 16).onComplete(ar -> result.complete(ar.cause())));
+      assertEquals("closed", result.get(10, TimeUnit.SECONDS).getMessage());
+    } finally {
+      vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * A stream completing writes on the next event loop turn.
+   */
+  private static class SlowStream implements WriteStream<Buffer> {
+
+    private final boolean fail;
+    private final Buffer received = Buffer.buffer();
+    private int pending;
+    private int maxPendingSeen;
+    private boolean handlerSet;
+
+    SlowStream(boolean fail) {
+      this.fail = fail;
+    }
+
+    @Override
+    public WriteStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+      handlerSet = true;
+      return this;
+    }
+
+    @Override
+    public Future<Void> write(Buffer data) {
+      assertTrue(Context.isOnEventLoopThread());
+      if (fail) {
+        return Future.failedFuture("failed");
+      }
+      received.appendBuffer(data);
+      maxPendingSeen = Math.max(maxPendingSeen, ++pending);
+      Promise<Void> promise = Promise.promise();
+      Vertx.currentContext().runOnContext(v -> {
+        pending--;
+        promise.complete();
+      });
+      return promise.future();
+    }
+
+    @Override
+    public Future<Void> end() {
+      return Future.succeededFuture();
+    }
+
+    @Override
+    public WriteStream<Buffer> setWriteQueueMaxSize(int maxSize) {
+      return this;
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+      return false;
+    }
+
+    @Override
+    public WriteStream<Buffer> drainHandler(Handler<Void> handler) {
+      handlerSet = true;
+      return this;
+    }
+  }
+
+  /**
+   * A stream never completing writes, it closes on the second write and fails the pending writes.
+   */
+  private static class ClosingStream implements WriteStream<Buffer> {
+
+    private final List<Promise<Void>> pending = new ArrayList<>();
+
+    @Override
+    public WriteStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+      return this;
+    }
+
+    @Override
+    public Future<Void> write(Buffer data) {
+      Promise<Void> promise = Promise.promise();
+      pending.add(promise);
+      if (pending.size() == 2) {
+        pending.forEach(p -> p.fail("closed"));
+      }
+      return promise.future();
+    }
+
+    @Override
+    public Future<Void> end() {
+      return Future.succeededFuture();
+    }
+
+    @Override
+    public WriteStream<Buffer> setWriteQueueMaxSize(int maxSize) {
+      return this;
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+      return false;
+    }
+
+    @Override
+    public WriteStream<Buffer> drainHandler(Handler<Void> handler) {
+      return this;
+    }
+  }
+}
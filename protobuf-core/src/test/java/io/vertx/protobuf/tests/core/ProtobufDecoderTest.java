@@ -16,12 +16,23 @@
  */
 package io.vertx.protobuf.tests.core;
 
+import com.google.protobuf.CodedOutputStream;
+import io.vertx.protobuf.core.ByteBufferProtobufDecoder;
+import io.vertx.protobuf.core.DecodeException;
 import io.vertx.protobuf.core.DefaultProtobufDecoder;
 import io.vertx.protobuf.core.ProtobufDecoder;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class ProtobufDecoderTest {
 
@@ -65,4 +76,133 @@ public class ProtobufDecoderTest {
 //    assertEquals(18446744073709551615L, decoder.longValue());
 
   }
+
+  @Test
+  public void testByteBufferDecoder() {
+    byte[] data = {
+      -71, 96,
+      -71, -32, -128, 0,
+      -128, -128, -128, -128, -8, -1, -1, -1, -1, 1,
+      1, 2, 3, 4,
+      1, 2, 3, 4, 5, 6, 7, 8,
+      'a', 'b', 'c'
+    };
+    testByteBufferDecoder(ByteBuffer.wrap(data));
+    ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+    direct.put(data).flip();
+    testByteBufferDecoder(direct);
+  }
+
+  private void testByteBufferDecoder(ByteBuffer buffer) {
+    ProtobufDecoder decoder = new ByteBufferProtobufDecoder(buffer);
+    assertTrue(decoder.readVarInt32());
+    assertEquals(12345, decoder.intValue());
+    assertTrue(decoder.readVarInt32());
+    assertEquals(12345, decoder.intValue());
+    assertTrue(decoder.readVarInt32());
+    assertEquals(-2147483648, decoder.intValue());
+    assertTrue(decoder.readI32());
+    assertEquals(0x04030201, decoder.intValue());
+    assertTrue(decoder.readI64());
+    assertEquals(0x0807060504030201L, decoder.longValue());
+    assertEquals("abc", decoder.readString(3));
+    assertFalse(decoder.isReadable());
+    assertEquals(0, buffer.position());
+  }
+
+  @Test
+  public void testByteBufferDecoderSlice() {
+    ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 0, 0, 'a', 'b', 'c', 0 });
+    buffer.position(2).limit(5);
+    ProtobufDecoder decoder = new ByteBufferProtobufDecoder(buffer.slice());
+    assertArrayEquals(new byte[] { 'a', 'b', 'c' }, decoder.readBytes(3));
+    assertFalse(decoder.isReadable());
+  }
+
+  @Test
+  public void testDecodeValues() {
+    byte[] data = {
+      -71, 96,
+      -1, -1, -1, -1, -1, -1, -1, -1, -1, 1,
+      1, 2, 3, 4,
+      1, 2, 3, 4, 5, 6, 7, 8
+    };
+    testDecodeValues(new DefaultProtobufDecoder(data));
+    testDecodeValues(new ByteBufferProtobufDecoder(ByteBuffer.wrap(data)));
+    ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+    direct.put(data).flip();
+    testDecodeValues(new ByteBufferProtobufDecoder(direct));
+  }
+
+  private void testDecodeValues(ProtobufDecoder decoder) {
+    assertEquals(12345, decoder.decodeVarInt32());
+    assertEquals(-1L, decoder.decodeVarInt64());
+    assertEquals(0x04030201, decoder.decodeI32());
+    assertEquals(0x0807060504030201L, decoder.decodeI64());
+    assertFalse(decoder.isReadable());
+  }
+
+  @Test
+  public void testDecodeTruncatedValues() {
+    byte[][] inputs = { { -128 }, { 1, 2, 3 }, { 1, 2, 3, 4, 5, 6, 7 } };
+    for (int i = 0;i < inputs.length;i++) {
+      for (ProtobufDecoder decoder : Arrays.asList(new DefaultProtobufDecoder(inputs[i]), new ByteBufferProtobufDecoder(ByteBuffer.wrap(inputs[i])))) {
+        try {
+          switch (i) {
+            case 0:
+              decoder.decodeVarInt32();
+              break;
+            case 1:
+              decoder.decodeI32();
+              break;
+            default:
+              decoder.decodeI64();
+              break;
+          }
+          fail();
+        } catch (DecodeException expected) {
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testReadVarIntSizes() throws Exception {
+    Random random = new Random(0);
+    for (int size = 1;size <= 10;size++) {
+      long[] values = new long[64];
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      CodedOutputStream cos = CodedOutputStream.newInstance(baos);
+      for (int i = 0;i < values.length;i++) {
+        long value = size == 10 ? (random.nextLong() | Long.MIN_VALUE) : (random.nextLong() & (-1L >>> (64 - 7 * size))) | (1L << (7 * (size - 1)));
+        values[i] = value;
+        cos.writeUInt64NoTag(value);
+      }
+      cos.flush();
+      byte[] data = baos.toByteArray();
+      ProtobufDecoder decoder = new DefaultProtobufDecoder(data);
+      for (int i = 0;i < values.length;i++) {
+        int from = decoder.index();
+        assertTrue(decoder.readVarInt64());
+        assertEquals(values[i], decoder.longValue());
+        assertEquals(size, decoder.index() - from);
+      }
+      assertFalse(decoder.isReadable());
+    }
+  }
+
+  @Test
+  public void testReadVarIntBeyondLimit() {
+    for (int size = 1;size <= 10;size++) {
+      byte[] data = new byte[16];
+      Arrays.fill(data, 0, size - 1, (byte) 0x80);
+      ProtobufDecoder decoder = new DefaultProtobufDecoder(data);
+      decoder.len(size - 1);
+      try {
+        decoder.readVarInt64();
+        fail();
+      } catch (DecodeException expected) {
+      }
+    }
+  }
 }
@@ -35,6 +35,7 @@ public class ProtobufEncodeBenchmark extends BenchmarkBase {
 
   private Struct struct;
   private io.vertx.protobuf.well_known_types.Struct vertxStruct;
+  private io.vertx.protobuf.well_known_types.Struct vertxDeepStruct;
   private JsonObject json;
 
   @Setup
@@ -74,6 +75,13 @@ public class ProtobufEncodeBenchmark extends BenchmarkBase {
     nested.getFields().put("the-boolean", new io.vertx.protobuf.well_known_types.Value().setKind(io.vertx.protobuf.well_known_types.Value.Kind.ofBoolValue(true)));
     nested.getFields().put("the-null", new io.vertx.protobuf.well_known_types.Value().setKind(io.vertx.protobuf.well_known_types.Value.Kind.ofNullValue(io.vertx.protobuf.well_known_types.NullValue.Enum.NULL_VALUE)));
     vertxStruct.getFields().put("the-object", new io.vertx.protobuf.well_known_types.Value().setKind(io.vertx.protobuf.well_known_types.Value.Kind.ofStructValue(nested)));
+    vertxDeepStruct = vertxStruct;
+    for (int i = 0;i < 16;i++) {
+      io.vertx.protobuf.well_known_types.Struct parent = new io.vertx.protobuf.well_known_types.Struct();
+      parent.getFields().put("the-string", new io.vertx.protobuf.well_known_types.Value().setKind(io.vertx.protobuf.well_known_types.Value.Kind.ofStringValue("the-string-value")));
+      parent.getFields().put("the-object", new io.vertx.protobuf.well_known_types.Value().setKind(io.vertx.protobuf.well_known_types.Value.Kind.ofStructValue(vertxDeepStruct)));
+      vertxDeepStruct = parent;
+    }
   }
 
   @Benchmark
@@ -99,6 +107,21 @@ public class ProtobufEncodeBenchmark extends BenchmarkBase {
     return ProtobufWriter.encodeToByteArray(visitor -> ProtoWriter.emit(vertxStruct, visitor));
   }
 
+  @Benchmark
+  public byte[] vertxStructSinglePass() {
+    return ProtobufWriter.encodeSinglePass(visitor -> ProtoWriter.emit(vertxStruct, visitor));
+  }
+
+  @Benchmark
+  public byte[] vertxDeepStruct() {
+    return ProtobufWriter.encodeToByteArray(visitor -> ProtoWriter.emit(vertxDeepStruct, visitor));
+  }
+
+  @Benchmark
+  public byte[] vertxDeepStructSinglePass() {
+    return ProtobufWriter.encodeSinglePass(visitor -> ProtoWriter.emit(vertxDeepStruct, visitor));
+  }
+
   @Benchmark
   public byte[] jsonObject() {
 //    return Json.encodeToByteArray(json);
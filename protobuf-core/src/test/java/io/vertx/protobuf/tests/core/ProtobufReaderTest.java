@@ -16,12 +16,31 @@
  */
 package io.vertx.protobuf.tests.core;
 
+import com.google.protobuf.CodedOutputStream;
 import io.vertx.protobuf.core.DecodeException;
+import io.vertx.protobuf.core.ProtoVisitor;
+import io.vertx.protobuf.core.ProtobufDecoder;
 import io.vertx.protobuf.core.ProtobufReader;
+import io.vertx.protobuf.core.ProtobufWriter;
+import io.vertx.protobuf.core.ReaderLimits;
+import io.vertx.protobuf.core.UnknownFieldMode;
+import io.vertx.protobuf.schema.DefaultField;
 import io.vertx.protobuf.schema.DefaultMessageType;
+import io.vertx.protobuf.schema.Field;
+import io.vertx.protobuf.schema.MessageType;
 import io.vertx.protobuf.schema.ScalarType;
+import io.vertx.protobuf.schema.WireType;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class ProtobufReaderTest {
@@ -38,6 +57,699 @@ public class ProtobufReaderTest {
     testInvalidInput(data);
   }
 
+  @Test
+  public void testReadWireTypeMismatch() {
+    // Varint value for the string field
+    byte[] data = { 8, 1 };
+    testInvalidInput(data);
+  }
+
+  @Test
+  public void testReadTruncatedTag() {
+    byte[] data = { (byte) 0x80 };
+    testInvalidInput(data);
+  }
+
+  @Test
+  public void testReadLargeFieldNumbers() throws IOException {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    DefaultField small = msg.addField(1, ScalarType.INT32);
+    DefaultField medium = msg.addField(300, ScalarType.STRING);
+    DefaultField large = msg.addField(536_870_911, ScalarType.FIXED64);
+    byte[] data = new byte[64];
+    CodedOutputStream out = CodedOutputStream.newInstance(data);
+    out.writeFixed64(536_870_911, 5L);
+    out.writeString(300, "foo");
+    out.writeInt32(1, 3);
+    out.writeFixed64(536_870_911, 6L);
+    out.writeInt32(2, 7);
+    out.flush();
+    data = Arrays.copyOf(data, out.getTotalBytesWritten());
+    for (int i = 0;i < 2;i++) {
+      RecordingVisitor expected = new RecordingVisitor();
+      expected.init(msg);
+      expected.visitFixed64(large, 5L);
+      expected.visitString(medium, "foo");
+      expected.visitInt32(small, 3);
+      expected.visitFixed64(large, 6L);
+      expected.visitInt64(msg.unknownField(2, WireType.VARINT), 7L);
+      expected.destroy();
+      RecordingVisitor.Checker checker = expected.checker();
+      ProtobufReader.parse(msg, checker, data);
+      assertTrue(checker.isEmpty());
+    }
+  }
+
+  @Test
+  public void testReadEmbeddedRaw() throws IOException {
+    DefaultMessageType payload = new DefaultMessageType("Payload");
+    DefaultField value = payload.addField(1, ScalarType.STRING);
+    DefaultMessageType envelope = new DefaultMessageType("Envelope");
+    DefaultField header = envelope.addField(1, ScalarType.INT32);
+    DefaultField body = envelope.addField(2, payload);
+    byte[] data = new byte[64];
+    CodedOutputStream out = CodedOutputStream.newInstance(data);
+    out.writeInt32(1, 4);
+    out.writeTag(2, 2);
+    out.writeUInt32NoTag(5);
+    out.writeString(1, "foo");
+    out.writeInt32(1, 5);
+    out.flush();
+    data = Arrays.copyOf(data, out.getTotalBytesWritten());
+    List<ProtobufDecoder> slices = new ArrayList<>();
+    RecordingVisitor visitor = new RecordingVisitor() {
+      @Override
+      public boolean isEmbeddedRaw(Field field) {
+        return field == body;
+      }
+      @Override
+      public void visitEmbeddedRaw(Field field, ProtobufDecoder decoder, int offset, int length) {
+        assertSame(body, field);
+        assertEquals(4, offset);
+        assertEquals(5, length);
+        slices.add(decoder.slice(offset, length));
+      }
+    };
+    ProtobufReader.parse(envelope, visitor, data);
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(envelope);
+    expected.visitInt32(header, 4);
+    expected.visitInt32(header, 5);
+    expected.destroy();
+    RecordingVisitor.Checker checker = expected.checker();
+    visitor.apply(checker);
+    assertTrue(checker.isEmpty());
+    assertEquals(1, slices.size());
+    expected = new RecordingVisitor();
+    expected.init(payload);
+    expected.visitString(value, "foo");
+    expected.destroy();
+    checker = expected.checker();
+    ProtobufReader.parse(payload, checker, slices.get(0));
+    assertTrue(checker.isEmpty());
+  }
+
+  @Test
+  public void testReadEmbeddedRawDefault() {
+    DefaultMessageType payload = new DefaultMessageType("Payload");
+    DefaultField value = payload.addField(1, ScalarType.STRING);
+    DefaultMessageType envelope = new DefaultMessageType("Envelope");
+    DefaultField body = envelope.addField(2, payload);
+    byte[] data = { 2 << 3 | 2, 5, 1 << 3 | 2, 3, 'f', 'o', 'o' };
+    RecordingVisitor visitor = new RecordingVisitor() {
+      @Override
+      public boolean isEmbeddedRaw(Field field) {
+        return true;
+      }
+    };
+    ProtobufReader.parse(envelope, visitor, data);
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(envelope);
+    expected.enter(body);
+    expected.visitString(value, "foo");
+    expected.leave(body);
+    expected.destroy();
+    RecordingVisitor.Checker checker = expected.checker();
+    visitor.apply(checker);
+    assertTrue(checker.isEmpty());
+  }
+
+  @Test
+  public void testReadEmbeddedRawDefaultLimits() throws IOException {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    msg.addField(1, msg);
+    msg.addField(2, "bytes", ScalarType.BYTES);
+    RecordingVisitor visitor = new RecordingVisitor() {
+      @Override
+      public boolean isEmbeddedRaw(Field field) {
+        return true;
+      }
+    };
+    // The embedded messages are parsed at their depth
+    ProtobufReader reader = new ProtobufReader().maxDepth(2);
+    reader.read(msg, visitor, nested(2), 0, nested(2).length);
+    try {
+      reader.read(msg, visitor, nested(3), 0, nested(3).length);
+      fail();
+    } catch (DecodeException expected) {
+    }
+    // Allocations of the embedded messages are accounted to the calling reader
+    byte[] data = new byte[64];
+    CodedOutputStream out = CodedOutputStream.newInstance(data);
+    out.writeByteArray(2, new byte[10]);
+    out.writeTag(1, 2);
+    out.writeUInt32NoTag(12);
+    out.writeByteArray(2, new byte[10]);
+    out.flush();
+    data = Arrays.copyOf(data, out.getTotalBytesWritten());
+    new ProtobufReader().maxAllocatedBytes(20).read(msg, visitor, data, 0, data.length);
+    try {
+      new ProtobufReader().maxAllocatedBytes(19).read(msg, visitor, data, 0, data.length);
+      fail();
+    } catch (DecodeException expected) {
+    }
+  }
+
+  @Test
+  public void testReadTruncatedEmbeddedRaw() {
+    DefaultMessageType payload = new DefaultMessageType("Payload");
+    DefaultMessageType envelope = new DefaultMessageType("Envelope");
+    envelope.addField(2, payload);
+    byte[] data = { 2 << 3 | 2, 5, 0 };
+    try {
+      ProtobufReader.parse(envelope, new RecordingVisitor() {
+        @Override
+        public boolean isEmbeddedRaw(Field field) {
+          return true;
+        }
+      }, data);
+      fail();
+    } catch (DecodeException expected) {
+    }
+  }
+
+  private static byte[] unknownFields() throws IOException {
+    byte[] data = new byte[64];
+    CodedOutputStream out = CodedOutputStream.newInstance(data);
+    out.writeInt64(2, 300);
+    out.writeString(3, "foo");
+    out.writeInt32(1, 4);
+    out.writeFixed32(4, 5);
+    out.writeFixed64(5, 6L);
+    out.flush();
+    return Arrays.copyOf(data, out.getTotalBytesWritten());
+  }
+
+  @Test
+  public void testDiscardUnknownFields() throws IOException {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    DefaultField known = msg.addField(1, ScalarType.INT32);
+    RecordingVisitor visitor = new RecordingVisitor() {
+      @Override
+      public UnknownFieldMode unknownFieldMode() {
+        return UnknownFieldMode.DISCARD;
+      }
+    };
+    ProtobufReader.parse(msg, visitor, unknownFields());
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(msg);
+    expected.visitInt32(known, 4);
+    expected.destroy();
+    RecordingVisitor.Checker checker = expected.checker();
+    visitor.apply(checker);
+    assertTrue(checker.isEmpty());
+  }
+
+  @Test
+  public void testPreserveUnknownFields() throws IOException {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    DefaultField known = msg.addField(1, ScalarType.INT32);
+    byte[] data = unknownFields();
+    List<int[]> ranges = new ArrayList<>();
+    RecordingVisitor visitor = new RecordingVisitor() {
+      @Override
+      public UnknownFieldMode unknownFieldMode() {
+        return UnknownFieldMode.PRESERVE;
+      }
+      @Override
+      public void visitUnknownRaw(MessageType type, ProtobufDecoder decoder, int offset, int length) {
+        assertSame(msg, type);
+        ranges.add(new int[] { offset, length });
+      }
+    };
+    ProtobufReader.parse(msg, visitor, data);
+    assertEquals(2, ranges.size());
+    // Field 2 and 3
+    assertEquals(0, ranges.get(0)[0]);
+    assertEquals(8, ranges.get(0)[1]);
+    // Field 4 and 5
+    assertEquals(10, ranges.get(1)[0]);
+    assertEquals(14, ranges.get(1)[1]);
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(msg);
+    expected.visitInt32(known, 4);
+    expected.destroy();
+    RecordingVisitor.Checker checker = expected.checker();
+    visitor.apply(checker);
+    assertTrue(checker.isEmpty());
+  }
+
+  @Test
+  public void testPreserveUnknownFieldsDefault() throws IOException {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    DefaultField known = msg.addField(1, ScalarType.INT32);
+    RecordingVisitor visitor = new RecordingVisitor() {
+      @Override
+      public UnknownFieldMode unknownFieldMode() {
+        return UnknownFieldMode.PRESERVE;
+      }
+    };
+    ProtobufReader.parse(msg, visitor, unknownFields());
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(msg);
+    expected.visitInt64(msg.unknownField(2, WireType.VARINT), 300);
+    expected.visitBytes(msg.unknownField(3, WireType.LEN), "foo".getBytes());
+    expected.visitInt32(known, 4);
+    expected.visitFixed32(msg.unknownField(4, WireType.I32), 5);
+    expected.visitFixed64(msg.unknownField(5, WireType.I64), 6L);
+    expected.destroy();
+    RecordingVisitor.Checker checker = expected.checker();
+    visitor.apply(checker);
+    assertTrue(checker.isEmpty());
+  }
+
+  @Test
+  public void testCopyUnknownFields() throws IOException {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    DefaultMessageType nested = new DefaultMessageType("nested");
+    msg.addField(1, ScalarType.INT32);
+    msg.addField(6, nested);
+    byte[] data = new byte[64];
+    CodedOutputStream out = CodedOutputStream.newInstance(data);
+    out.writeInt32(1, 4);
+    out.writeTag(6, 2);
+    out.writeUInt32NoTag(5);
+    out.writeString(1, "foo");
+    out.writeInt64(7, 300);
+    out.writeFixed32(8, 5);
+    out.flush();
+    data = Arrays.copyOf(data, out.getTotalBytesWritten());
+    byte[] copy = ProtobufWriter.encodeToByteArray(ProtobufReader.readerStream(msg, data));
+    assertEquals(Arrays.toString(data), Arrays.toString(copy));
+  }
+
+  @Test
+  public void testUnknownFieldBecomesKnown() throws IOException {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    byte[] data = unknownFields();
+    ProtobufReader.parse(msg, new RecordingVisitor(), data);
+    DefaultField known = msg.addField(2, ScalarType.INT64);
+    RecordingVisitor visitor = new RecordingVisitor() {
+      @Override
+      public UnknownFieldMode unknownFieldMode() {
+        return UnknownFieldMode.DISCARD;
+      }
+    };
+    ProtobufReader.parse(msg, visitor, data);
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(msg);
+    expected.visitInt64(known, 300);
+    expected.destroy();
+    RecordingVisitor.Checker checker = expected.checker();
+    visitor.apply(checker);
+    assertTrue(checker.isEmpty());
+  }
+
+  @Test
+  public void testReplacedFieldIsResolvedAgain() throws IOException {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    DefaultMessageType child = new DefaultMessageType("child");
+    DefaultField nested = msg.addField(1, child);
+    child.addField(1, ScalarType.INT64);
+    byte[] data = { 1 << 3 | 2, 2, 1 << 3, 5 };
+    ProtobufReader.parse(msg, new RecordingVisitor(), data);
+    // The table is held by the type
+    assertTrue(msg.runtimeData().get() != null);
+    DefaultField replaced = child.addField(1, ScalarType.SINT64);
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(msg);
+    expected.enter(nested);
+    expected.visitSInt64(replaced, -3);
+    expected.leave(nested);
+    expected.destroy();
+    RecordingVisitor.Checker checker = expected.checker();
+    ProtobufReader.parse(msg, checker, data);
+    assertTrue(checker.isEmpty());
+  }
+
+  private static byte[] packedFields() throws IOException {
+    byte[] data = new byte[128];
+    CodedOutputStream out = CodedOutputStream.newInstance(data);
+    out.writeTag(1, 2);
+    out.writeUInt32NoTag(1 + 2 + 3);
+    out.writeInt32NoTag(1);
+    out.writeInt32NoTag(300);
+    out.writeInt32NoTag(70000);
+    out.writeTag(2, 2);
+    out.writeUInt32NoTag(2);
+    out.writeSInt64NoTag(-1);
+    out.writeSInt64NoTag(1);
+    out.writeTag(3, 2);
+    out.writeUInt32NoTag(16);
+    out.writeDoubleNoTag(0.5);
+    out.writeDoubleNoTag(-2);
+    out.writeTag(4, 2);
+    out.writeUInt32NoTag(3);
+    out.writeBoolNoTag(true);
+    out.writeBoolNoTag(false);
+    out.writeBoolNoTag(true);
+    out.flush();
+    return Arrays.copyOf(data, out.getTotalBytesWritten());
+  }
+
+  private static DefaultMessageType packedType() {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    msg.addField(f -> f.number(1).name("ints").type(ScalarType.INT32).repeated(true).packed(true));
+    msg.addField(f -> f.number(2).name("longs").type(ScalarType.SINT64).repeated(true).packed(true));
+    msg.addField(f -> f.number(3).name("doubles").type(ScalarType.DOUBLE).repeated(true).packed(true));
+    msg.addField(f -> f.number(4).name("bools").type(ScalarType.BOOL).repeated(true).packed(true));
+    return msg;
+  }
+
+  @Test
+  public void testReadPacked() throws IOException {
+    DefaultMessageType msg = packedType();
+    List<String> list = new ArrayList<>();
+    RecordingVisitor visitor = new RecordingVisitor() {
+      @Override
+      public void visitPackedInt32(Field field, int[] values, int from, int to) {
+        list.add(field.number() + ":" + Arrays.toString(Arrays.copyOfRange(values, from, to)));
+      }
+      @Override
+      public void visitPackedSInt64(Field field, long[] values, int from, int to) {
+        list.add(field.number() + ":" + Arrays.toString(Arrays.copyOfRange(values, from, to)));
+      }
+      @Override
+      public void visitPackedDouble(Field field, double[] values, int from, int to) {
+        list.add(field.number() + ":" + Arrays.toString(Arrays.copyOfRange(values, from, to)));
+      }
+      @Override
+      public void visitPackedBool(Field field, boolean[] values, int from, int to) {
+        list.add(field.number() + ":" + Arrays.toString(Arrays.copyOfRange(values, from, to)));
+      }
+    };
+    ProtobufReader.parse(msg, visitor, packedFields());
+    assertEquals(List.of("1:[1, 300, 70000]", "2:[-1, 1]", "3:[0.5, -2.0]", "4:[true, false, true]"), list);
+  }
+
+  @Test
+  public void testReadPackedDefault() throws IOException {
+    DefaultMessageType msg = packedType();
+    RecordingVisitor visitor = new RecordingVisitor();
+    ProtobufReader.parse(msg, visitor, packedFields());
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(msg);
+    Field ints = msg.field(1);
+    expected.enterPacked(ints);
+    expected.visitInt32(ints, 1);
+    expected.visitInt32(ints, 300);
+    expected.visitInt32(ints, 70000);
+    expected.leavePacked(ints);
+    Field longs = msg.field(2);
+    expected.enterPacked(longs);
+    expected.visitSInt64(longs, -1);
+    expected.visitSInt64(longs, 1);
+    expected.leavePacked(longs);
+    Field doubles = msg.field(3);
+    expected.enterPacked(doubles);
+    expected.visitDouble(doubles, 0.5);
+    expected.visitDouble(doubles, -2);
+    expected.leavePacked(doubles);
+    Field bools = msg.field(4);
+    expected.enterPacked(bools);
+    expected.visitBool(bools, true);
+    expected.visitBool(bools, false);
+    expected.visitBool(bools, true);
+    expected.leavePacked(bools);
+    expected.destroy();
+    RecordingVisitor.Checker checker = expected.checker();
+    visitor.apply(checker);
+    assertTrue(checker.isEmpty());
+  }
+
+  @Test
+  public void testCopyPacked() throws IOException {
+    byte[] data = packedFields();
+    byte[] copy = ProtobufWriter.encodeToByteArray(ProtobufReader.readerStream(packedType(), data));
+    assertEquals(Arrays.toString(data), Arrays.toString(copy));
+  }
+
+  @Test
+  public void testReadTruncatedPacked() {
+    DefaultMessageType msg = packedType();
+    byte[][] inputs = {
+      // Length past the end of the message
+      { 1 << 3 | 2, 3, 1 },
+      // Last varint overflows the packed length
+      { 1 << 3 | 2, 1, (byte) 0x80, 1 },
+      // Length not a multiple of 8
+      { 3 << 3 | 2, 4, 0, 0, 0, 0 },
+    };
+    for (byte[] input : inputs) {
+      try {
+        ProtobufReader.parse(msg, new RecordingVisitor(), input);
+        fail();
+      } catch (DecodeException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void testReuseReader() throws IOException {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    DefaultField string = msg.addField(1, ScalarType.STRING);
+    byte[] data = new byte[64];
+    CodedOutputStream out = CodedOutputStream.newInstance(data);
+    out.writeString(1, "foo");
+    int split = out.getTotalBytesWritten();
+    out.writeString(1, "bar");
+    out.flush();
+    int length = out.getTotalBytesWritten();
+    ProtobufReader reader = new ProtobufReader();
+    RecordingVisitor visitor = new RecordingVisitor();
+    reader.read(msg, visitor, data, 0, split);
+    reader.read(msg, visitor, data, split, length - split);
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(msg);
+    expected.visitString(string, "foo");
+    expected.destroy();
+    expected.init(msg);
+    expected.visitString(string, "bar");
+    expected.destroy();
+    RecordingVisitor.Checker checker = expected.checker();
+    visitor.apply(checker);
+    assertTrue(checker.isEmpty());
+    try {
+      reader.read(msg, visitor, data, split, data.length);
+      fail();
+    } catch (IndexOutOfBoundsException ignore) {
+    }
+  }
+
+  @Test
+  public void testParseWhileParsing() throws IOException {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    msg.addField(1, ScalarType.STRING);
+    byte[] data = new byte[64];
+    CodedOutputStream out = CodedOutputStream.newInstance(data);
+    out.writeString(1, "foo");
+    out.writeString(1, "bar");
+    out.flush();
+    byte[] message = Arrays.copyOf(data, out.getTotalBytesWritten());
+    List<String> list = new ArrayList<>();
+    ProtobufReader.parse(msg, new RecordingVisitor() {
+      @Override
+      public void visitString(Field field, String s) {
+        list.add(s);
+        if (list.size() == 1) {
+          // Uses another reader than the reader of the current thread
+          ProtobufReader.parse(msg, new RecordingVisitor(), message);
+        }
+      }
+    }, message);
+    assertEquals(List.of("foo", "bar"), list);
+  }
+
+  private static byte[] nested(int depth) throws IOException {
+    byte[] data = new byte[0];
+    for (int i = 0;i < depth;i++) {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      CodedOutputStream out = CodedOutputStream.newInstance(baos);
+      out.writeByteArray(1, data);
+      out.flush();
+      data = baos.toByteArray();
+    }
+    return data;
+  }
+
+  @Test
+  public void testReadDeeplyNested() throws IOException {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    DefaultField child = msg.addField(1, msg);
+    int depth = 20_000;
+    byte[] data = nested(depth);
+    int[] events = new int[2];
+    ProtoVisitor visitor = new RecordingVisitor() {
+      @Override
+      public void enter(Field field) {
+        assertSame(child, field);
+        events[0]++;
+      }
+      @Override
+      public void leave(Field field) {
+        assertSame(child, field);
+        events[1]++;
+      }
+    };
+    new ProtobufReader().maxDepth(depth).read(msg, visitor, data, 0, data.length);
+    assertEquals(depth, events[0]);
+    assertEquals(depth, events[1]);
+  }
+
+  @Test
+  public void testReadMaxDepth() throws IOException {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    msg.addField(1, msg);
+    ProtobufReader.parse(msg, new RecordingVisitor(), nested(ProtobufReader.DEFAULT_MAX_DEPTH));
+    try {
+      ProtobufReader.parse(msg, new RecordingVisitor(), nested(ProtobufReader.DEFAULT_MAX_DEPTH + 1));
+      fail();
+    } catch (DecodeException expected) {
+    }
+    ProtobufReader reader = new ProtobufReader().maxDepth(2);
+    reader.read(msg, new RecordingVisitor(), nested(2), 0, nested(2).length);
+    try {
+      reader.read(msg, new RecordingVisitor(), nested(3), 0, nested(3).length);
+      fail();
+    } catch (DecodeException expected) {
+    }
+  }
+
+  @Test
+  public void testReadLimits() throws IOException {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    DefaultField bytes = msg.addField(1, ScalarType.BYTES);
+    DefaultField ints = msg.addField(f -> f.number(2).type(ScalarType.FIXED32).repeated(true).packed(true));
+    byte[] data = new byte[64];
+    CodedOutputStream out = CodedOutputStream.newInstance(data);
+    out.writeByteArray(1, new byte[10]);
+    out.writeByteArray(1, new byte[10]);
+    out.writeTag(2, 2);
+    out.writeUInt32NoTag(8);
+    out.writeFixed32NoTag(1);
+    out.writeFixed32NoTag(2);
+    out.flush();
+    data = Arrays.copyOf(data, out.getTotalBytesWritten());
+    new ProtobufReader().maxMessageSize(data.length).maxFieldLength(10).maxAllocatedBytes(28).read(msg, new RecordingVisitor(), data, 0, data.length);
+    ProtobufReader[] readers = {
+      new ProtobufReader().maxMessageSize(data.length - 1),
+      new ProtobufReader().maxFieldLength(9),
+      new ProtobufReader().maxAllocatedBytes(27)
+    };
+    for (ProtobufReader reader : readers) {
+      try {
+        reader.read(msg, new RecordingVisitor(), data, 0, data.length);
+        fail();
+      } catch (DecodeException expected) {
+      }
+    }
+    // The quota applies to each parse
+    ProtobufReader reader = new ProtobufReader().maxAllocatedBytes(28);
+    reader.read(msg, new RecordingVisitor(), data, 0, data.length);
+    reader.read(msg, new RecordingVisitor(), data, 0, data.length);
+  }
+
+  @Test
+  public void testReadLimitsStatic() throws IOException {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    msg.addField(1, ScalarType.INT32);
+    byte[] data = unknownFields();
+    ProtobufReader.parse(msg, new RecordingVisitor(), data, new ReaderLimits().maxFieldLength(3));
+    try {
+      ProtobufReader.parse(msg, new RecordingVisitor(), data, new ReaderLimits().maxFieldLength(2));
+      fail();
+    } catch (DecodeException expected) {
+    }
+    try {
+      ProtobufReader.readerStream(msg, data, new ReaderLimits().maxMessageSize(data.length - 1)).accept(new RecordingVisitor());
+      fail();
+    } catch (DecodeException expected) {
+    }
+    // Preserved unknown fields decoded by the default method inherit the quota of the reader
+    RecordingVisitor visitor = new RecordingVisitor() {
+      @Override
+      public UnknownFieldMode unknownFieldMode() {
+        return UnknownFieldMode.PRESERVE;
+      }
+    };
+    ProtobufReader.parse(msg, visitor, data, new ReaderLimits().maxAllocatedBytes(3));
+    try {
+      ProtobufReader.parse(msg, visitor, data, new ReaderLimits().maxAllocatedBytes(2));
+      fail();
+    } catch (DecodeException expected) {
+    }
+    // The reader of the thread is back to the default limits
+    ProtobufReader.parse(msg, visitor, data);
+  }
+
+  @Test
+  public void testReadHostileLength() {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    msg.addField(1, ScalarType.BYTES);
+    msg.addField(2, ScalarType.STRING);
+    byte[][] inputs = {
+      { 1 << 3 | 2, -1, -1, -1, -1, 7, 0 },
+      { 2 << 3 | 2, -1, -1, -1, -1, 7, 0 },
+      { 1 << 3 | 2, -1, -1, -1, -1, 15, 0 },
+    };
+    for (byte[] input : inputs) {
+      try {
+        ProtobufReader.parse(msg, new RecordingVisitor(), input);
+        fail();
+      } catch (DecodeException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void testReadEmbeddedLengthPastEnclosingMessage() {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    msg.addField(1, msg);
+    // The inner message claims 3 bytes, the outer message holds only 2
+    byte[] data = { 1 << 3 | 2, 2, 1 << 3 | 2, 3, 0, 0, 0 };
+    try {
+      ProtobufReader.parse(msg, new RecordingVisitor(), data);
+      fail();
+    } catch (DecodeException expected) {
+    }
+  }
+
+  @Test
+  public void testReadFieldOrder() throws IOException {
+    DefaultMessageType msg = new DefaultMessageType("Msg");
+    DefaultField f1 = msg.addField(1, "f1", ScalarType.INT32);
+    DefaultField f2 = msg.addField(2, "f2", ScalarType.STRING);
+    DefaultField f3 = msg.addField(3, "f3", ScalarType.FIXED64);
+    int[][] orders = { { 1, 2, 3 }, { 3, 2, 1 }, { 1, 1, 2, 1, 3, 3 }, { 1, 2, 3 }, { 2 }, { 1, 2, 3 } };
+    for (int[] order : orders) {
+      byte[] data = new byte[64];
+      CodedOutputStream out = CodedOutputStream.newInstance(data);
+      RecordingVisitor expected = new RecordingVisitor();
+      expected.init(msg);
+      for (int number : order) {
+        switch (number) {
+          case 1:
+            out.writeInt32(1, 4);
+            expected.visitInt32(f1, 4);
+            break;
+          case 2:
+            out.writeString(2, "foo");
+            expected.visitString(f2, "foo");
+            break;
+          default:
+            out.writeFixed64(3, 5L);
+            expected.visitFixed64(f3, 5L);
+            break;
+        }
+      }
+      expected.destroy();
+      out.flush();
+      RecordingVisitor.Checker checker = expected.checker();
+      ProtobufReader.parse(msg, checker, Arrays.copyOf(data, out.getTotalBytesWritten()));
+      assertTrue(Arrays.toString(order), checker.isEmpty());
+    }
+  }
+
   private void testInvalidInput(byte[] data) {
     DefaultMessageType msg = new DefaultMessageType("whatever");
     msg.addField(1, ScalarType.STRING);
@@ -16,15 +16,34 @@
  */
 package io.vertx.protobuf.tests.core;
 
+import io.vertx.protobuf.core.BufferPool;
+import io.vertx.protobuf.core.DelimitedProtoWriter;
+import io.vertx.protobuf.core.ProtoVisitor;
 import io.vertx.protobuf.core.ProtobufWriter;
 import io.vertx.protobuf.schema.DefaultField;
 import io.vertx.protobuf.schema.DefaultMessageType;
 import io.vertx.protobuf.schema.DefaultSchema;
 import io.vertx.protobuf.schema.ScalarType;
+import com.sun.management.ThreadMXBean;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 public class ProtobufWriterTest {
 
@@ -61,4 +80,323 @@ public class ProtobufWriterTest {
     });
     assertEquals(7, output[1]);
   }
+
+  @Test
+  public void testEncodeSinglePass() {
+    DefaultSchema schema = new DefaultSchema();
+    DefaultMessageType msg = schema.of("msg");
+    DefaultField child = msg.addField(1, "child", msg);
+    DefaultField name = msg.addField(2, "name", ScalarType.STRING);
+    DefaultField data = msg.addField(3, "data", ScalarType.BYTES);
+    DefaultField ids = msg.addField(builder -> builder.number(4).name("ids").type(ScalarType.SINT64).repeated(true).packed(true));
+    DefaultField weights = msg.addField(builder -> builder.number(5).name("weights").type(ScalarType.DOUBLE).repeated(true).packed(true));
+    DefaultField count = msg.addField(6, "count", ScalarType.FIXED32);
+    Consumer<ProtoVisitor> stream = visitor -> {
+      visitor.init(msg);
+      // Lengths of 1, 2 and 3 bytes
+      for (int depth = 0;depth < 3;depth++) {
+        visitor.enter(child);
+        visitor.visitString(name, "é".repeat(depth * 40));
+      }
+      for (int depth = 0;depth < 3;depth++) {
+        visitor.visitBytes(data, new byte[1 << (7 * depth)]);
+        visitor.visitPackedSInt64(ids, new long[] { -1, 0, Long.MAX_VALUE, Long.MIN_VALUE }, 0, 4);
+        visitor.visitPackedDouble(weights, new double[] { 0.5, 1.5 }, 0, 2);
+        visitor.visitFixed32(count, depth);
+        visitor.leave(child);
+      }
+      visitor.enter(child);
+      visitor.leave(child);
+      visitor.destroy();
+    };
+    assertArrayEquals(ProtobufWriter.encodeToByteArray(stream), ProtobufWriter.encodeSinglePass(stream));
+  }
+
+  @Test
+  public void testEncodeSinglePassVisitsOnce() {
+    DefaultSchema schema = new DefaultSchema();
+    DefaultMessageType msg = schema.of("msg");
+    DefaultField child = msg.addField(1, "child", msg);
+    DefaultField value = msg.addField(2, "value", ScalarType.INT32);
+    Iterator<Integer> it = List.of(1, 2, 3).iterator();
+    byte[] output = ProtobufWriter.encodeSinglePass(visitor -> {
+      visitor.init(msg);
+      while (it.hasNext()) {
+        visitor.enter(child);
+        visitor.visitInt32(value, it.next());
+        visitor.leave(child);
+      }
+      visitor.destroy();
+    });
+    assertArrayEquals(new byte[] { 10, 2, 16, 1, 10, 2, 16, 2, 10, 2, 16, 3 }, output);
+  }
+
+  private static Consumer<ProtoVisitor> message() {
+    DefaultSchema schema = new DefaultSchema();
+    DefaultMessageType msg = schema.of("msg");
+    DefaultField child = msg.addField(1, "child", msg);
+    DefaultField name = msg.addField(2, "name", ScalarType.STRING);
+    DefaultField count = msg.addField(3, "count", ScalarType.FIXED64);
+    return visitor -> {
+      visitor.init(msg);
+      visitor.enter(child);
+      visitor.visitString(name, "foo");
+      visitor.leave(child);
+      visitor.visitFixed64(count, 4L);
+      visitor.destroy();
+    };
+  }
+
+  @Test
+  public void testEncodeToArray() {
+    Consumer<ProtoVisitor> stream = message();
+    byte[] expected = ProtobufWriter.encodeToByteArray(stream);
+    byte[] buffer = new byte[expected.length + 2];
+    assertEquals(expected.length, ProtobufWriter.encode(stream, buffer, 2));
+    assertArrayEquals(expected, Arrays.copyOfRange(buffer, 2, buffer.length));
+    try {
+      ProtobufWriter.encode(stream, buffer, 3);
+      fail();
+    } catch (IndexOutOfBoundsException expectedException) {
+    }
+  }
+
+  @Test
+  public void testEncodeToByteBuffer() {
+    Consumer<ProtoVisitor> stream = message();
+    byte[] expected = ProtobufWriter.encodeToByteArray(stream);
+    ByteBuffer[] buffers = {
+      ByteBuffer.wrap(new byte[expected.length + 4], 1, expected.length + 2).slice(),
+      ByteBuffer.allocateDirect(expected.length + 2)
+    };
+    for (ByteBuffer buffer : buffers) {
+      buffer.position(1);
+      assertEquals(expected.length, ProtobufWriter.encode(stream, buffer));
+      assertEquals(expected.length + 1, buffer.position());
+      byte[] actual = new byte[expected.length];
+      buffer.position(1);
+      buffer.get(actual);
+      assertArrayEquals(expected, actual);
+      try {
+        ProtobufWriter.encode(stream, buffer);
+        fail();
+      } catch (BufferOverflowException expectedException) {
+      }
+    }
+  }
+
+  @Test
+  public void testEncodeWithPool() {
+    Consumer<ProtoVisitor> stream = message();
+    byte[] expected = ProtobufWriter.encodeToByteArray(stream);
+    BufferPool pool = BufferPool.threadLocal(1024);
+    List<byte[]> buffers = new ArrayList<>();
+    for (int i = 0;i < 2;i++) {
+      int length = ProtobufWriter.encode(stream, pool, (buffer, len) -> {
+        assertArrayEquals(expected, Arrays.copyOf(buffer, len));
+        buffers.add(buffer);
+      });
+      assertEquals(expected.length, length);
+    }
+    assertSame(buffers.get(0), buffers.get(1));
+    // An acquired array is not handed out twice
+    byte[] acquired = pool.acquire(16);
+    assertTrue(acquired != pool.acquire(16));
+    pool.release(acquired);
+    assertSame(acquired, pool.acquire(16));
+  }
+
+  @Test
+  public void testEncodeWithPoolFailure() {
+    DefaultMessageType msg = new DefaultMessageType("msg");
+    DefaultField value = msg.addField(1, "value", ScalarType.INT32);
+    int[] passes = new int[1];
+    Consumer<ProtoVisitor> stream = visitor -> {
+      visitor.init(msg);
+      // Fail once the encoder is created
+      if (passes[0]++ == 1) {
+        throw new IllegalStateException();
+      }
+      visitor.visitInt32(value, 4);
+      visitor.destroy();
+    };
+    List<byte[]> released = new ArrayList<>();
+    BufferPool pool = new BufferPool() {
+      @Override
+      public byte[] acquire(int capacity) {
+        return new byte[capacity];
+      }
+      @Override
+      public void release(byte[] buffer) {
+        released.add(buffer);
+      }
+    };
+    try {
+      ProtobufWriter.encode(stream, pool, (buffer, len) -> fail());
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    assertEquals(1, released.size());
+  }
+
+  @Test
+  public void testEncodeChunked() {
+    DefaultSchema schema = new DefaultSchema();
+    DefaultMessageType msg = schema.of("msg");
+    DefaultField child = msg.addField(1, "child", msg);
+    DefaultField data = msg.addField(2, "data", ScalarType.BYTES);
+    DefaultField count = msg.addField(3, "count", ScalarType.FIXED64);
+    byte[] bytes = new byte[100];
+    Arrays.fill(bytes, (byte) 1);
+    Consumer<ProtoVisitor> stream = visitor -> {
+      visitor.init(msg);
+      visitor.enter(child);
+      visitor.visitBytes(data, bytes);
+      visitor.visitFixed64(count, -1L);
+      visitor.leave(child);
+      visitor.visitFixed64(count, 4L);
+      visitor.destroy();
+    };
+    byte[] expected = ProtobufWriter.encodeToByteArray(stream);
+    for (int chunkSize : new int[] { 16, 17, 64, 1024 }) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      List<Integer> chunks = new ArrayList<>();
+      ProtobufWriter.encode(stream, chunkSize, (chunk, length) -> {
+        assertTrue(length <= chunkSize);
+        chunks.add(length);
+        out.write(chunk, 0, length);
+      });
+      assertArrayEquals(expected, out.toByteArray());
+      assertEquals(expected.length, chunks.stream().mapToInt(Integer::intValue).sum());
+      out.reset();
+      assertEquals(expected.length, ProtobufWriter.encode(stream, out, chunkSize));
+      assertArrayEquals(expected, out.toByteArray());
+      out.reset();
+      assertEquals(expected.length, ProtobufWriter.encode(stream, Channels.newChannel(out), chunkSize));
+      assertArrayEquals(expected, out.toByteArray());
+    }
+    try {
+      ProtobufWriter.encode(stream, new ByteArrayOutputStream(), 8);
+      fail();
+    } catch (IllegalArgumentException expectedException) {
+    }
+  }
+
+  @Test
+  public void testEncodeLargeMessage() {
+    DefaultSchema schema = new DefaultSchema();
+    DefaultMessageType msg = schema.of("msg");
+    DefaultField child = msg.addField(1, "child", msg);
+    DefaultField name = msg.addField(2, "name", ScalarType.STRING);
+    // Deep nesting and many length-delimited values
+    Consumer<ProtoVisitor> stream = visitor -> {
+      visitor.init(msg);
+      for (int depth = 0;depth < 200;depth++) {
+        visitor.enter(child);
+      }
+      for (int i = 0;i < 500;i++) {
+        visitor.visitString(name, "foo");
+      }
+      for (int depth = 0;depth < 200;depth++) {
+        visitor.leave(child);
+      }
+      visitor.destroy();
+    };
+    byte[] expected = ProtobufWriter.encodeSinglePass(stream);
+    assertArrayEquals(expected, ProtobufWriter.encodeToByteArray(stream));
+    assertArrayEquals(expected, ProtobufWriter.encodeToByteArray(stream));
+  }
+
+  @Test
+  public void testEncodeReusesStateOfManyEmbeddedMessages() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof ThreadMXBean);
+    ThreadMXBean threadBean = (ThreadMXBean) bean;
+    assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+    DefaultSchema schema = new DefaultSchema();
+    DefaultMessageType msg = schema.of("msg");
+    DefaultField child = msg.addField(1, "child", msg);
+    // More than a thousand length-delimited values, the state captures an int per value
+    int count = 10_000;
+    Consumer<ProtoVisitor> stream = visitor -> {
+      visitor.init(msg);
+      for (int i = 0;i < count;i++) {
+        visitor.enter(child);
+        visitor.leave(child);
+      }
+      visitor.destroy();
+    };
+    byte[] buffer = new byte[2 * count];
+    assertEquals(2 * count, ProtobufWriter.encode(stream, buffer, 0));
+    assertEquals(2 * count, ProtobufWriter.encode(stream, buffer, 0));
+    long threadId = Thread.currentThread().getId();
+    long before = threadBean.getThreadAllocatedBytes(threadId);
+    assertEquals(2 * count, ProtobufWriter.encode(stream, buffer, 0));
+    long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+    // Capturing the lengths in fresh arrays would allocate at least 4 bytes per value
+    assertTrue("Allocated " + allocated + " bytes", allocated < count);
+  }
+
+  @Test
+  public void testEncodeWhileEncoding() {
+    DefaultSchema schema = new DefaultSchema();
+    DefaultMessageType msg = schema.of("msg");
+    DefaultField child = msg.addField(1, "child", msg);
+    DefaultField data = msg.addField(2, "data", ScalarType.BYTES);
+    Consumer<ProtoVisitor> inner = visitor -> {
+      visitor.init(msg);
+      visitor.enter(child);
+      visitor.leave(child);
+      visitor.destroy();
+    };
+    Consumer<ProtoVisitor> outer = visitor -> {
+      visitor.init(msg);
+      visitor.enter(child);
+      visitor.visitBytes(data, ProtobufWriter.encodeToByteArray(inner));
+      visitor.leave(child);
+      visitor.destroy();
+    };
+    assertArrayEquals(new byte[] { 10, 4, 18, 2, 10, 0 }, ProtobufWriter.encodeToByteArray(outer));
+  }
+
+  @Test
+  public void testEncodeAfterFailedPackedEncode() {
+    DefaultSchema schema = new DefaultSchema();
+    DefaultMessageType msg = schema.of("msg");
+    DefaultField ids = msg.addField(builder -> builder.number(1).name("ids").type(ScalarType.INT32).repeated(true).packed(true));
+    DefaultField count = msg.addField(2, "count", ScalarType.INT32);
+    int[] calls = new int[1];
+    // Fails within the packed field when the stream is visited by the encoding phase
+    Consumer<ProtoVisitor> failing = visitor -> {
+      visitor.init(msg);
+      visitor.enterPacked(ids);
+      visitor.visitInt32(ids, 1);
+      if (calls[0]++ == 1) {
+        throw new IllegalStateException();
+      }
+      visitor.leavePacked(ids);
+      visitor.destroy();
+    };
+    Consumer<ProtoVisitor> stream = visitor -> {
+      visitor.init(msg);
+      visitor.visitInt32(count, 3);
+      visitor.destroy();
+    };
+    try {
+      ProtobufWriter.encodeToByteArray(failing);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    assertArrayEquals(new byte[] { 16, 3 }, ProtobufWriter.encodeToByteArray(stream));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    DelimitedProtoWriter writer = new DelimitedProtoWriter(out);
+    calls[0] = 0;
+    try {
+      writer.write(failing);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    writer.write(stream);
+    assertArrayEquals(new byte[] { 2, 16, 3 }, out.toByteArray());
+  }
 }
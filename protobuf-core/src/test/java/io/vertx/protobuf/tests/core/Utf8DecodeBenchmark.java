@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.tests.core;
+
+import io.vertx.protobuf.core.Utf8;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Compare strict string decoding of {@link Utf8} with the lenient JDK decoder.
+ */
+@State(Scope.Thread)
+public class Utf8DecodeBenchmark extends BenchmarkBase {
+
+  /**
+   * <ul>
+   *   <li>ascii: identifiers, enum names, URLs</li>
+   *   <li>latin1: mostly ASCII text with accented characters</li>
+   *   <li>cjk: 3 byte sequences only</li>
+   * </ul>
+   */
+  @Param({ "ascii", "latin1", "cjk" })
+  public String charset;
+
+  @Param({ "16", "256" })
+  public int length;
+
+  private byte[] data;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(0);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0;i < length;i++) {
+      char c;
+      switch (charset) {
+        case "ascii":
+          c = (char) ('a' + random.nextInt(26));
+          break;
+        case "latin1":
+          c = random.nextInt(10) == 0 ? (char) (0xC0 + random.nextInt(64)) : (char) ('a' + random.nextInt(26));
+          break;
+        case "cjk":
+          c = (char) (0x4E00 + random.nextInt(0x5000));
+          break;
+        default:
+          throw new IllegalArgumentException();
+      }
+      sb.append(c);
+    }
+    data = sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public String strict() {
+    return Utf8.decode(data, 0, data.length);
+  }
+
+  @Benchmark
+  public String jdk() {
+    return new String(data, 0, data.length, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.tests.core;
+
+import com.google.protobuf.CodedOutputStream;
+import io.vertx.protobuf.core.ProtobufReader;
+import io.vertx.protobuf.core.ProtobufWriter;
+import io.vertx.protobuf.core.Utf8String;
+import io.vertx.protobuf.schema.DefaultField;
+import io.vertx.protobuf.schema.DefaultMessageType;
+import io.vertx.protobuf.schema.Field;
+import io.vertx.protobuf.schema.ScalarType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class Utf8StringTest {
+
+  @Test
+  public void testEquality() {
+    byte[] bytes = "xxfoo-é".getBytes(StandardCharsets.UTF_8);
+    Utf8String view = Utf8String.wrap(bytes, 2, bytes.length - 2);
+    Utf8String str = Utf8String.of("foo-é");
+    assertEquals(str, view);
+    assertEquals(str.hashCode(), view.hashCode());
+    assertEquals("foo-é", view.toString());
+    assertSame(view.toString(), view.toString());
+    assertArrayEquals("foo-é".getBytes(StandardCharsets.UTF_8), view.getBytes());
+    assertFalse(str.equals(Utf8String.of("foo-e")));
+    assertEquals(Utf8String.of(""), Utf8String.wrap(bytes, 1, 0));
+    assertTrue(Utf8String.wrap(bytes, 1, 0).isEmpty());
+  }
+
+  private static final DefaultMessageType MSG = new DefaultMessageType("whatever");
+  private static final DefaultField STRING = MSG.addField(1, ScalarType.STRING);
+
+  private static byte[] encode(String... values) throws IOException {
+    byte[] data = new byte[256];
+    CodedOutputStream out = CodedOutputStream.newInstance(data);
+    for (String value : values) {
+      out.writeString(1, value);
+    }
+    out.flush();
+    return Arrays.copyOf(data, out.getTotalBytesWritten());
+  }
+
+  @Test
+  public void testVisitUtf8String() throws IOException {
+    byte[] data = encode("foo", "", "héhé");
+    List<Utf8String> list = new ArrayList<>();
+    RecordingVisitor visitor = new RecordingVisitor() {
+      @Override
+      public boolean utf8Strings() {
+        return true;
+      }
+      @Override
+      public void visitString(Field field, Utf8String s) {
+        assertSame(STRING, field);
+        list.add(s);
+      }
+    };
+    ProtobufReader.parse(MSG, visitor, data);
+    ProtobufReader.parse(MSG, visitor, ByteBuffer.wrap(data));
+    ProtobufReader.parse(MSG, visitor, ByteBuffer.allocateDirect(data.length).put(data).flip());
+    assertEquals(9, list.size());
+    for (int i = 0;i < 3;i++) {
+      assertEquals(Utf8String.of("foo"), list.get(i * 3));
+      assertEquals(Utf8String.of(""), list.get(i * 3 + 1));
+      assertEquals("héhé", list.get(i * 3 + 2).toString());
+    }
+    assertSame(data, list.get(0).array());
+  }
+
+  @Test
+  public void testVisitUtf8StringDefault() throws IOException {
+    byte[] data = encode("foo", "héhé");
+    RecordingVisitor visitor = new RecordingVisitor() {
+      @Override
+      public boolean utf8Strings() {
+        return true;
+      }
+    };
+    ProtobufReader.parse(MSG, visitor, data);
+    RecordingVisitor expected = new RecordingVisitor();
+    expected.init(MSG);
+    expected.visitString(STRING, "foo");
+    expected.visitString(STRING, "héhé");
+    expected.destroy();
+    RecordingVisitor.Checker checker = expected.checker();
+    visitor.apply(checker);
+    assertTrue(checker.isEmpty());
+  }
+
+  @Test
+  public void testCopyUtf8String() throws IOException {
+    byte[] data = encode("foo", "héhé", "");
+    byte[] copy = ProtobufWriter.encodeToByteArray(ProtobufReader.readerStream(MSG, data));
+    assertArrayEquals(data, copy);
+  }
+}
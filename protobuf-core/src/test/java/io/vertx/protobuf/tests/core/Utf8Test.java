@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.tests.core;
+
+import io.vertx.protobuf.core.DecodeException;
+import io.vertx.protobuf.core.ProtobufReader;
+import io.vertx.protobuf.core.Utf8;
+import io.vertx.protobuf.core.Utf8String;
+import io.vertx.protobuf.schema.DefaultMessageType;
+import io.vertx.protobuf.schema.ScalarType;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Utf8Test {
+
+  private static final String[] VALID = {
+    "",
+    "a",
+    "abcdefghijklmnopqrstuvwxyz0123456789",
+    "abcdefgh\u007F",
+    "éèà-Latin-1-ÿ",
+    "abcdefghé",
+    "中文字符串中文字符串",
+    "ࠀ￿𐀀􏿿",
+    "😀 emoji 😀",
+  };
+
+  private static final byte[][] INVALID = {
+    // Lone continuation byte
+    { (byte) 0x80 },
+    { 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', (byte) 0xBF },
+    // Overlong encodings
+    { (byte) 0xC0, (byte) 0xAF },
+    { (byte) 0xC1, (byte) 0xBF },
+    { (byte) 0xE0, (byte) 0x80, (byte) 0xAF },
+    { (byte) 0xF0, (byte) 0x80, (byte) 0x80, (byte) 0xAF },
+    // Surrogates
+    { (byte) 0xED, (byte) 0xA0, (byte) 0x80 },
+    { (byte) 0xED, (byte) 0xBF, (byte) 0xBF },
+    // Above U+10FFFF
+    { (byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80 },
+    { (byte) 0xF5, (byte) 0x80, (byte) 0x80, (byte) 0x80 },
+    { (byte) 0xFF },
+    // Truncated sequences
+    { (byte) 0xC3 },
+    { 'a', (byte) 0xE4, (byte) 0xB8 },
+    { (byte) 0xF0, (byte) 0x9F, (byte) 0x98 },
+    // Missing continuation byte
+    { (byte) 0xC3, 'a' },
+    { (byte) 0xE4, (byte) 0xB8, 'a' },
+  };
+
+  @Test
+  public void testDecodeValid() {
+    for (String s : VALID) {
+      byte[] bytes = ("xx" + s + "yy").getBytes(StandardCharsets.UTF_8);
+      int length = bytes.length - 4;
+      assertTrue(Utf8.isValid(bytes, 2, length));
+      assertEquals(s, Utf8.decode(bytes, 2, length));
+    }
+  }
+
+  @Test
+  public void testRejectInvalid() {
+    for (byte[] bytes : INVALID) {
+      assertFalse(Utf8.isValid(bytes, 0, bytes.length));
+      try {
+        Utf8.decode(bytes, 0, bytes.length);
+        fail();
+      } catch (DecodeException expected) {
+      }
+      assertFalse(Utf8String.wrap(bytes).isValid());
+    }
+  }
+
+  @Test
+  public void testReadInvalidString() {
+    DefaultMessageType msg = new DefaultMessageType("whatever");
+    msg.addField(1, ScalarType.STRING);
+    byte[] data = { 1 << 3 | 2, 2, (byte) 0xED, (byte) 0xA0 };
+    try {
+      ProtobufReader.parse(msg, new RecordingVisitor(), data);
+      fail();
+    } catch (DecodeException expected) {
+    }
+    try {
+      ProtobufReader.parse(msg, new RecordingVisitor(), ByteBuffer.allocateDirect(data.length).put(data).flip());
+      fail();
+    } catch (DecodeException expected) {
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2025 Julien Viet
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.vertx.protobuf.tests.core;
+
+import com.google.protobuf.CodedOutputStream;
+import io.vertx.protobuf.core.DefaultProtobufDecoder;
+import io.vertx.protobuf.core.ProtobufDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+/**
+ * Compare varint decoding of {@link DefaultProtobufDecoder} with the previous two pass algorithm, and the value
+ * returning decoder API with the API storing the value in the decoder.
+ */
+@State(Scope.Thread)
+public class VarIntDecodeBenchmark extends BenchmarkBase {
+
+  private static final int COUNT = 1024;
+
+  /**
+   * <ul>
+   *   <li>tags: 1 byte values, typical of tags and small lengths</li>
+   *   <li>small: 1 or 2 byte values, typical of enums, booleans and small ints</li>
+   *   <li>mixed: mostly short values with a tail of large ones, typical of a message payload</li>
+   *   <li>large: 9 or 10 byte values, typical of negative int64 or hashes</li>
+   * </ul>
+   */
+  @Param({ "tags", "small", "mixed", "large" })
+  public String distribution;
+
+  private byte[] data;
+
+  @Setup
+  public void setup() throws Exception {
+    Random random = new Random(0);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    CodedOutputStream cos = CodedOutputStream.newInstance(baos);
+    for (int i = 0;i < COUNT;i++) {
+      long value;
+      switch (distribution) {
+        case "tags":
+          value = random.nextInt(128);
+          break;
+        case "small":
+          value = random.nextInt(16384);
+          break;
+        case "mixed":
+          int p = random.nextInt(100);
+          if (p < 60) {
+            value = random.nextInt(128);
+          } else if (p < 85) {
+            value = random.nextInt(16384);
+          } else if (p < 95) {
+            value = random.nextInt(1 << 28);
+          } else {
+            value = random.nextLong();
+          }
+          break;
+        case "large":
+          value = random.nextLong() | Long.MIN_VALUE;
+          break;
+        default:
+          throw new IllegalArgumentException();
+      }
+      cos.writeUInt64NoTag(value);
+    }
+    cos.flush();
+    data = baos.toByteArray();
+  }
+
+  @Benchmark
+  public long defaultDecoder() {
+    DefaultProtobufDecoder decoder = new DefaultProtobufDecoder(data);
+    long sum = 0;
+    while (decoder.isReadable()) {
+      decoder.readVarInt64();
+      sum += decoder.longValue();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long valueDecoder() {
+    DefaultProtobufDecoder decoder = new DefaultProtobufDecoder(data);
+    long sum = 0;
+    while (decoder.isReadable()) {
+      sum += decoder.decodeVarInt64();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long valueInterfaceDecoder() {
+    ProtobufDecoder decoder = new DefaultProtobufDecoder(data);
+    long sum = 0;
+    while (decoder.isReadable()) {
+      sum += decoder.decodeVarInt64();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long interfaceDecoder() {
+    ProtobufDecoder decoder = new DefaultProtobufDecoder(data);
+    long sum = 0;
+    while (decoder.isReadable()) {
+      if (!decoder.readVarInt64()) {
+        throw new IllegalStateException();
+      }
+      sum += decoder.longValue();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long twoPassDecoder() {
+    TwoPassDecoder decoder = new TwoPassDecoder(data);
+    long sum = 0;
+    while (decoder.idx < data.length) {
+      sum += decoder.decodeRawVarInt();
+    }
+    return sum;
+  }
+
+  /**
+   * The previous algorithm: scan forward to the last byte, then accumulate backwards.
+   */
+  private static class TwoPassDecoder {
+
+    private final byte[] buffer;
+    private final int len;
+    private int idx;
+
+    TwoPassDecoder(byte[] buffer) {
+      this.buffer = buffer;
+      this.len = buffer.length;
+    }
+
+    long decodeRawVarInt() {
+      int i = idx;
+      int l = idx + len;
+      while (i < l) {
+        byte b = buffer[i];
+        i++;
+        if ((b & 0x80) == 0) {
+          long val = 0;
+          int to = idx;
+          idx = i;
+          int from = idx - 1;
+          while (from >= to) {
+            val <<= 7;
+            val += (buffer[from--] & 0x7F);
+          }
+          return val;
+        }
+      }
+      throw new IllegalStateException();
+    }
+  }
+}
@@ -16,21 +16,31 @@
  */
 package io.vertx.protobuf.tests.core.json;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.protobuf.core.DecodeException;
 import io.vertx.protobuf.core.ProtoStream;
+import io.vertx.protobuf.core.Utf8String;
 import io.vertx.protobuf.core.json.ProtoJsonWriter;
+import io.vertx.protobuf.core.json.jackson.JacksonJsonEncoder;
+import io.vertx.protobuf.schema.DefaultField;
+import io.vertx.protobuf.schema.DefaultMessageType;
+import io.vertx.protobuf.schema.ScalarType;
 import io.vertx.protobuf.tests.core.support.basic.FieldLiteral;
 import io.vertx.protobuf.tests.core.support.basic.MessageLiteral;
 import io.vertx.protobuf.tests.core.support.basic.ProtoWriter;
 import io.vertx.protobuf.tests.core.support.basic.SimpleMessage;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 public class StreamingWriterTest {
 
@@ -113,4 +123,22 @@ public class StreamingWriterTest {
     System.out.println(jsonObject);
   }
 
+  @Test
+  public void testInvalidUtf8String() throws Exception {
+    DefaultMessageType msg = new DefaultMessageType("Msg");
+    DefaultField field = msg.addField(1, "s", ScalarType.STRING);
+    byte[] invalid = { 'a', (byte) 0xC3, 'b' };
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonGenerator generator = new JsonFactory().createGenerator(out);
+    ProtoJsonWriter writer = new ProtoJsonWriter(new JacksonJsonEncoder(generator));
+    try {
+      writer.write(visitor -> {
+        visitor.init(msg);
+        visitor.visitString(field, Utf8String.wrap(invalid));
+        visitor.destroy();
+      });
+      fail();
+    } catch (DecodeException expected) {
+    }
+  }
 }
@@ -16,10 +16,12 @@ open module io.vertx.tests {
   requires io.vertx.protobuf.lang;
   requires io.vertx.protobuf.extension;
   requires junit;
+  requires jdk.management;
   requires com.google.protobuf;
   requires com.google.protobuf.util;
   requires jmh.core;
   requires io.netty.codec.http;
+  requires io.netty.buffer;
   requires com.google.common;
   requires com.fasterxml.jackson.core;
 }
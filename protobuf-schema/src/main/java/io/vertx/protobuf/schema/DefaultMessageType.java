@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 public class DefaultMessageType implements MessageType {
@@ -29,6 +30,7 @@ public class DefaultMessageType implements MessageType {
   private final Map<Integer, DefaultField> fields = new TreeMap<>();
   private final Map<String, DefaultField> byName = new HashMap<>();
   private final Map<String, DefaultField> byJsonName = new HashMap<>();
+  private final AtomicReference<Object> runtimeData = new AtomicReference<>();
 
   public DefaultMessageType(String name) {
     this.name = name;
@@ -48,6 +50,11 @@ public class DefaultMessageType implements MessageType {
     return WireType.LEN;
   }
 
+  @Override
+  public AtomicReference<Object> runtimeData() {
+    return runtimeData;
+  }
+
   public Collection<DefaultField> fields() {
     return fields.values();
   }
@@ -77,6 +84,7 @@ public class DefaultMessageType implements MessageType {
       throw new IllegalStateException("Duplicate field " + jsonName);
     }
     fields.put(number, field);
+    runtimeData.set(null);
     byName.put(name, field);
     byJsonName.put(jsonName, field);
     return field;
@@ -92,6 +100,7 @@ public class DefaultMessageType implements MessageType {
       throw new IllegalStateException("Duplicate field " + name);
     }
     fields.put(number, field);
+    runtimeData.set(null);
     byName.put(name, field);
     byJsonName.put(jsonName, field);
     return field;
@@ -100,6 +109,7 @@ public class DefaultMessageType implements MessageType {
   public DefaultField addField(int number, Type type) {
     DefaultField field = new DefaultField(this, number, null, null, false, false, false, false, false, type);
     fields.put(number, field);
+    runtimeData.set(null);
     return field;
   }
 
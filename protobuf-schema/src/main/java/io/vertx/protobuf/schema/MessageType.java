@@ -16,6 +16,10 @@
  */
 package io.vertx.protobuf.schema;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
 public interface MessageType extends Type {
   @Override
   default TypeID id() {
@@ -27,6 +31,21 @@ public interface MessageType extends Type {
   }
   String name(); // rename to proto name ?
   Field field(int number);
+  /**
+   * @return the declared fields of this type when it can enumerate them, otherwise an empty collection
+   */
+  default Collection<? extends Field> fields() {
+    return Collections.emptyList();
+  }
+  /**
+   * A slot where the runtime keeps the data it derives from this type, e.g. decoding tables, so the data lives as long
+   * as the type. A mutable type clears the slot when it is modified.
+   *
+   * @return the slot or {@code null} when the type does not provide one
+   */
+  default AtomicReference<Object> runtimeData() {
+    return null;
+  }
   default Field fieldByName(String name) {
     return null;
   }